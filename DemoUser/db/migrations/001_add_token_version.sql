@@ -0,0 +1,6 @@
+-- Phiên bản token của user, dùng để thu hồi JWT ở chế độ jwt.stateless
+ALTER TABLE users
+    ADD COLUMN token_version INT NOT NULL DEFAULT 0;
+
+-- Làm mới deny-list theo updated_at
+CREATE INDEX idx_users_updated_at ON users (updated_at);
@@ -0,0 +1,5 @@
+-- Đường dẫn các ảnh thu nhỏ của avatar, do AvatarThumbnailer ghi
+ALTER TABLE users
+    ADD COLUMN avatar_variants VARCHAR(500) NULL;
+
+CREATE INDEX idx_users_avatar ON users (avatar);
@@ -0,0 +1,3 @@
+-- Cột version cho optimistic locking (@Version trên User); các dòng cũ bắt đầu từ 0
+ALTER TABLE users
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,5 @@
+-- Heartbeat dùng để đo độ trễ của replica (xem ReadWriteRoutingDataSource)
+CREATE TABLE replication_heartbeat (
+    id INT PRIMARY KEY,
+    beat_millis BIGINT NOT NULL
+);
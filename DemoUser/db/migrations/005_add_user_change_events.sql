@@ -0,0 +1,12 @@
+-- Outbox thay đổi user, ghi cùng transaction với thay đổi; mỗi node đọc tăng dần theo id để xóa
+-- cache/index cục bộ (xem UserChangeTailer). user_id và username đều NULL = mọi user (bulk theo filter)
+CREATE TABLE user_change_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    change_type VARCHAR(20) NOT NULL,
+    user_id BIGINT NULL,
+    username VARCHAR(50) NULL,
+    previous_username VARCHAR(50) NULL,
+    origin VARCHAR(64) NOT NULL,
+    created_millis BIGINT NOT NULL,
+    INDEX idx_user_change_events_created (created_millis)
+);
@@ -0,0 +1,49 @@
+package com.example.DemoUser.Configurations;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Async request handling for {@code StreamingResponseBody} (GET /users/stream).
+ * <p>
+ * {@code @EnableWebMvc} turns off {@code spring.mvc.async.*}, so without this the body is
+ * written on an unbounded {@code SimpleAsyncTaskExecutor} thread per request and cut off
+ * by the container's 30 s async timeout, far too short for a multi-million-row export.
+ * Exports run on a small bounded pool (each one holds a DB connection for its whole
+ * duration); when the pool and its queue are full the request fails with 503.
+ */
+@Configuration
+public class AsyncWebConfig implements WebMvcConfigurer, DisposableBean {
+    private final ThreadPoolTaskExecutor executor;
+    private final Duration timeout;
+
+    public AsyncWebConfig(@Value("${app.async.threads:4}") int threads,
+                          @Value("${app.async.queue-capacity:8}") int queueCapacity,
+                          @Value("${app.async.request-timeout:1h}") Duration timeout) {
+        this.executor = new ThreadPoolTaskExecutor();
+        this.executor.setCorePoolSize(threads);
+        this.executor.setMaxPoolSize(threads);
+        this.executor.setQueueCapacity(queueCapacity);
+        this.executor.setThreadNamePrefix("mvc-async-");
+        this.executor.initialize();
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // <= 0: không giới hạn thời gian (Tomcat coi timeout không dương là vô hạn)
+        configurer.setDefaultTimeout(timeout.toMillis() > 0 ? timeout.toMillis() : -1);
+        configurer.setTaskExecutor(executor);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
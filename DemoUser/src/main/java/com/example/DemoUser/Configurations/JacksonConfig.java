@@ -0,0 +1,46 @@
+package com.example.DemoUser.Configurations;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Jackson setup shared by the MVC message converters and code that injects the
+ * {@link ObjectMapper}.
+ * <p>
+ * Blackbird replaces reflective getter/constructor calls with generated lambdas, so
+ * each bean property is written through a direct call. {@code @EnableWebMvc} turns off
+ * Spring Boot's converter setup, and the MVC converters would otherwise build their own
+ * mapper without the modules registered here. Unlike that default mapper, Boot's writes
+ * dates as ISO strings; {@code spring.jackson.serialization.write-dates-as-timestamps}
+ * keeps the array format clients already parse ({@code JsonWireFormatTests}).
+ */
+@Configuration
+@RequiredArgsConstructor
+public class JacksonConfig implements WebMvcConfigurer {
+    private final ObjectProvider<ObjectMapper> objectMapper;
+
+    // Bean Module được Spring Boot tự đăng ký vào ObjectMapper
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        for (HttpMessageConverter<?> converter : converters) {
+            if (converter instanceof MappingJackson2HttpMessageConverter jackson) {
+                jackson.setObjectMapper(objectMapper.getObject());
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.DemoUser.Configurations;
+
+import com.example.DemoUser.dtos.BulkUserUpdateDTO;
+import com.example.DemoUser.dtos.UserImportDTO;
+import com.example.DemoUser.dtos.UserLoginDTO;
+import com.example.DemoUser.dtos.UserPatchDTO;
+import com.example.DemoUser.models.User;
+import com.example.DemoUser.models.UserTokenVersion;
+import com.example.DemoUser.responses.BulkUpdateResponse;
+import com.example.DemoUser.responses.LoginResponse;
+import com.example.DemoUser.responses.ResponseObject;
+import com.example.DemoUser.responses.UserBatchResponse;
+import com.example.DemoUser.responses.UserImportResponse;
+import com.example.DemoUser.responses.UserPageResponse;
+import com.example.DemoUser.responses.UserResponse;
+import com.example.DemoUser.responses.UserSearchResponse;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import java.util.List;
+
+/**
+ * Reflection hints for the native image ({@code mvn -Pnative native:compile}).
+ * <p>
+ * Jackson binds the DTOs and responses reflectively, and AOT cannot infer most of them
+ * from the controllers: they return {@code ResponseEntity<?>} or carry the payload in
+ * {@code ResponseObject.data}. jjwt loads its implementation, compression codecs and
+ * Jackson (de)serializer by class name or through {@code META-INF/services}.
+ */
+@Configuration
+@RegisterReflectionForBinding({
+        User.class, UserTokenVersion.class,
+        UserLoginDTO.class, UserPatchDTO.class, BulkUserUpdateDTO.class, UserImportDTO.class,
+        ResponseObject.class, UserResponse.class, LoginResponse.class, UserPageResponse.class,
+        UserSearchResponse.class, BulkUpdateResponse.class, UserImportResponse.class, UserBatchResponse.class
+})
+@ImportRuntimeHints(NativeHintsConfig.JjwtRuntimeHints.class)
+public class NativeHintsConfig {
+
+    static class JjwtRuntimeHints implements RuntimeHintsRegistrar {
+        // jjwt-impl và jjwt-jackson chỉ có ở scope runtime nên tham chiếu theo tên
+        private static final List<String> TYPES = List.of(
+                "io.jsonwebtoken.impl.DefaultJwtBuilder",
+                "io.jsonwebtoken.impl.DefaultJwtParser",
+                "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+                "io.jsonwebtoken.impl.DefaultClaims",
+                "io.jsonwebtoken.impl.DefaultHeader",
+                "io.jsonwebtoken.impl.DefaultJwsHeader",
+                "io.jsonwebtoken.impl.compression.DeflateCompressionCodec",
+                "io.jsonwebtoken.impl.compression.GzipCompressionCodec",
+                "io.jsonwebtoken.jackson.io.JacksonSerializer",
+                "io.jsonwebtoken.jackson.io.JacksonDeserializer"
+        );
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            TYPES.forEach(type -> hints.reflection().registerType(TypeReference.of(type),
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS));
+            hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.DemoUser.Configurations;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// app.datasource.*: các replica chỉ đọc đứng sau spring.datasource (primary)
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.datasource")
+public class ReplicaDataSourceProperties {
+    private List<Replica> replicas = new ArrayList<>();
+
+    // Replica trễ hơn mức này (hoặc không đo được) sẽ không nhận truy vấn đọc
+    private Duration maxReplicaLag = Duration.ofSeconds(5);
+
+    private Duration lagCheckInterval = Duration.ofSeconds(1);
+
+    private Duration readYourWritesWindow = Duration.ofSeconds(10);
+
+    @Getter
+    @Setter
+    public static class Replica {
+        private String url;
+
+        // Mặc định dùng username/password của primary
+        private String username;
+
+        private String password;
+
+        private int maximumPoolSize = 10;
+    }
+}
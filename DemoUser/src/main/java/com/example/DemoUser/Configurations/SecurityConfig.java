@@ -1,7 +1,8 @@
 package com.example.DemoUser.Configurations;
 
-import com.example.DemoUser.repositories.UserRepository;
+import com.example.DemoUser.repositories.UserCache;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -11,24 +12,39 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.Map;
 
 @Configuration
 @RequiredArgsConstructor
 public class SecurityConfig {
 
-    private final UserRepository userRepository;
+    private final UserCache userCache;
+    @Value("${security.bcrypt.strength:10}")
+    private int bcryptStrength;
+    @Value("${security.password.encoder:bcrypt}")
+    private String passwordEncoderId;
     //user's detail object
 
     @Bean
     public UserDetailsService userDetailsService() {
-        return userName -> userRepository.findByUsername(userName)
+        return userName -> userCache.findByUsername(userName)
                 .orElseThrow(() -> new UsernameNotFoundException("Cannot find user with userName = " + userName));
     }
 
+    // Hash được lưu kèm tiền tố {id}; hash cũ không có tiền tố được coi là BCrypt
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        Map<String, PasswordEncoder> encoders = Map.of(
+                "bcrypt", new BCryptPasswordEncoder(bcryptStrength),
+                "pbkdf2", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8()
+        );
+        DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder(passwordEncoderId, encoders);
+        passwordEncoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder(bcryptStrength));
+        return passwordEncoder;
     }
     @Bean
     public AuthenticationProvider authenticationProvider() {
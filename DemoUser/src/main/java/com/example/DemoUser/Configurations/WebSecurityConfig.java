@@ -2,10 +2,13 @@ package com.example.DemoUser.Configurations;
 
 
 import com.example.DemoUser.filters.JwtTokenFilter;
+import com.example.DemoUser.filters.PublicRoutes;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -21,8 +24,6 @@ import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import java.util.Arrays;
 import java.util.List;
 
-import static org.springframework.http.HttpMethod.GET;
-
 @Configuration
 //@EnableMethodSecurity
 @EnableWebSecurity(debug = true)
@@ -32,9 +33,20 @@ import static org.springframework.http.HttpMethod.GET;
 public class WebSecurityConfig {
 
     private final JwtTokenFilter jwtTokenFilter;
+    private final PublicRoutes publicRoutes;
+
 
-    @Value("${api.prefix}")
-    private String apiPrefix;
+    // Actuator chỉ nghe trên management.server.port (mạng nội bộ, Prometheus scrape không kèm token).
+    // Khi cổng khác cổng API, EndpointRequest chỉ khớp request của context management nên cổng API vẫn đi chain bên dưới.
+    @Bean
+    @Order(1)
+    public SecurityFilterChain managementFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher(EndpointRequest.toAnyEndpoint())
+                .authorizeHttpRequests(requests -> requests.anyRequest().permitAll())
+                .csrf(AbstractHttpConfigurer::disable);
+        return http.build();
+    }
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http)  throws Exception{
@@ -42,12 +54,12 @@ public class WebSecurityConfig {
                 .addFilterBefore(jwtTokenFilter, UsernamePasswordAuthenticationFilter.class)
                 .authorizeHttpRequests(requests -> {
                     requests
-                            .requestMatchers(
-                                    String.format("%s/users", apiPrefix),
-                                    String.format("%s/users/login", apiPrefix),
-                                    String.format("%s/users/register", apiPrefix),
-                                    String.format("%s/users/**", apiPrefix)
-                            )
+                            // Cùng bảng route với JwtTokenFilter (PublicRoutes); actuator đi managementFilterChain
+                            .requestMatchers(publicRoutes)
+                            .permitAll()
+                            // Dispatch ASYNC chỉ ghi nốt body (GET /users/stream) của request đã được xác thực lúc vào;
+                            // JwtTokenFilter không chạy lại cho dispatch này nên không có Authentication
+                            .dispatcherTypeMatchers(DispatcherType.ASYNC)
                             .permitAll()
 
                             .anyRequest().authenticated();
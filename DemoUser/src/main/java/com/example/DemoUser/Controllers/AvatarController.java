@@ -0,0 +1,155 @@
+package com.example.DemoUser.Controllers;
+
+import com.example.DemoUser.componnents.AvatarStorage;
+import com.example.DemoUser.componnents.AvatarThumbnailer;
+import com.example.DemoUser.exceptions.DataNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Serves stored avatars without copying them through the heap: Tomcat sendfile when the
+ * connector supports it, otherwise {@link FileChannel#transferTo}. Avatar files never
+ * change once written, so responses carry a strong content ETag and a one-year
+ * immutable Cache-Control; single byte ranges are honoured. With {@code ?size=N} the
+ * smallest generated variant of at least N px is served instead of the original. Until
+ * that variant exists the original is served with {@code no-cache}, so browsers and CDNs
+ * revalidate and pick up the thumbnail (a different ETag) once it has been generated.
+ * <p>
+ * The content type comes from the image whitelist in {@link AvatarStorage}, never from
+ * the file name alone, and is sent with {@code nosniff}; only image types are served
+ * inline, anything else is a download.
+ */
+@RestController
+@RequestMapping("api/v1/users/avatars")
+@RequiredArgsConstructor
+public class AvatarController {
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final String CACHE_CONTROL_PENDING_VARIANT = "no-cache";
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final AvatarStorage avatarStorage;
+    private final AvatarThumbnailer avatarThumbnailer;
+
+    @GetMapping("/{fileName:.+}")
+    public void getAvatar(
+            @PathVariable("fileName") String fileName,
+            @RequestParam(value = "size", required = false) Integer size,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException, DataNotFoundException {
+        Path file = avatarStorage.findFile(fileName);
+        if (file == null) {
+            throw new DataNotFoundException("Cannot find avatar " + fileName);
+        }
+        String cacheControl = CACHE_CONTROL;
+        if (size != null) {
+            Path variant = avatarStorage.smallestVariant(file, size);
+            if (variant != null) {
+                file = variant;
+            } else if (size < avatarStorage.thumbnailSizes().get(avatarStorage.thumbnailSizes().size() - 1)) {
+                // Chưa có variant phù hợp (job bị bỏ khi hàng đợi đầy hoặc chưa chạy xong): tạo lại ở nền,
+                // ảnh gốc trả tạm không được cache lâu dưới URL ?size=N
+                avatarThumbnailer.submit(avatarStorage.avatarPath(file));
+                cacheControl = CACHE_CONTROL_PENDING_VARIANT;
+            }
+        }
+        String etag = avatarStorage.etag(file);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        if (matchesEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long length = Files.size(file);
+        long start = 0;
+        long end = length; // exclusive
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            // Nhiều range (multipart/byteranges) thì trả nguyên file, được phép theo RFC 9110
+            if (ranges.size() == 1) {
+                long rangeStart = ranges.get(0).getRangeStart(length);
+                long rangeEnd = ranges.get(0).getRangeEnd(length);
+                if (length == 0 || rangeStart >= length) {
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return;
+                }
+                start = rangeStart;
+                end = Math.min(rangeEnd, length - 1) + 1;
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + length);
+            }
+        }
+
+        MediaType mediaType = avatarStorage.mediaType(file);
+        if (mediaType != null) {
+            response.setContentType(mediaType.toString());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline().build().toString());
+        } else {
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().build().toString());
+        }
+        response.setContentLengthLong(end - start);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat gửi file bằng sendfile sau khi servlet trả về, dữ liệu không đi qua JVM heap
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, target);
+            }
+        }
+    }
+
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || value.equals(etag) || value.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
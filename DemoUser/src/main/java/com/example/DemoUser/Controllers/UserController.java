@@ -1,36 +1,134 @@
 package com.example.DemoUser.Controllers;
 
+import com.example.DemoUser.componnents.AuthRateLimiter;
+import com.example.DemoUser.dtos.BulkUserUpdateDTO;
 import com.example.DemoUser.dtos.UserLoginDTO;
+import com.example.DemoUser.dtos.UserPatchDTO;
 import com.example.DemoUser.exceptions.DataNotFoundException;
+import com.example.DemoUser.exceptions.InvalidParamException;
+import com.example.DemoUser.exceptions.ServiceBusyException;
 import com.example.DemoUser.models.User;
+import com.example.DemoUser.responses.BulkUpdateResponse;
 import com.example.DemoUser.responses.LoginResponse;
 import com.example.DemoUser.responses.ResponseObject;
+import com.example.DemoUser.responses.UserBatchResponse;
+import com.example.DemoUser.responses.UserImportResponse;
+import com.example.DemoUser.responses.UserPageResponse;
+import com.example.DemoUser.responses.UserResponse;
+import com.example.DemoUser.responses.UserSearchResponse;
+import com.example.DemoUser.services.IUserImportService;
 import com.example.DemoUser.services.IUserService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
 @RequestMapping("api/v1/users")
 @RequiredArgsConstructor
 public class UserController {
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+    private static final int MAX_BATCH_IDS = 100;
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final IUserService userService;
+    private final AuthRateLimiter authRateLimiter;
+    private final IUserImportService userImportService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("")
-    public ResponseEntity<?> getUserAll() {
-        List<User> users = userService.getAllUsers();
+    public ResponseEntity<?> getUserAll(
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "limit", defaultValue = "50") int limit
+    ) {
+        UserPageResponse page = userService.getUsersPage(after, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
         return ResponseEntity.ok(ResponseObject.builder()
                 .message("Get list of user successfully")
                 .status(HttpStatus.OK)
-                .data(users)
+                .data(page)
+                .build());
+    }
+
+    // Ghi từng user ra response ngay khi đọc được từ JDBC cursor, heap không phụ thuộc kích thước bảng.
+    // Chỉ admin: trả email/phone của mọi user và giữ một kết nối DB trong suốt export
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamUsers(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format
+    ) {
+        boolean ndjson = !"json".equalsIgnoreCase(format);
+        ObjectWriter writer = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (SequenceWriter sequenceWriter = ndjson
+                    ? writer.withRootValueSeparator("\n").writeValues(outputStream)
+                    : writer.writeValuesAsArray(outputStream)) {
+                userService.streamAllUsers(user -> {
+                    try {
+                        sequenceWriter.write(user);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            if (ndjson) {
+                outputStream.write('\n');
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    // Tìm theo một phần username/email/phone trên index trong bộ nhớ, không truy vấn DB
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/search")
+    public ResponseEntity<ResponseObject> searchUsers(
+            @RequestParam("q") String query,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size
+    ) {
+        UserSearchResponse result = userService.searchUsers(query, Math.max(0, page), Math.max(1, Math.min(size, MAX_SEARCH_PAGE_SIZE)));
+        return ResponseEntity.ok(ResponseObject.builder()
+                .message("Search users successfully")
+                .status(HttpStatus.OK)
+                .data(result)
+                .build());
+    }
+
+    // Thay cho N request GET /{id} song song: một lần xác thực JWT, id chưa có trong cache nạp bằng một câu IN
+    @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
+    @GetMapping("/batch")
+    public ResponseEntity<ResponseObject> getUsersByIds(@RequestParam("ids") List<Long> ids) {
+        if (ids.size() > MAX_BATCH_IDS) {
+            return ResponseEntity.badRequest().body(ResponseObject.builder()
+                    .message("At most " + MAX_BATCH_IDS + " ids per request")
+                    .status(HttpStatus.BAD_REQUEST)
+                    .build());
+        }
+        UserBatchResponse result = userService.getUsersByIds(ids);
+        return ResponseEntity.ok(ResponseObject.builder()
+                .message("Get users by ids successfully")
+                .status(HttpStatus.OK)
+                .data(result)
                 .build());
     }
 
@@ -41,7 +139,7 @@ public class UserController {
         return ResponseEntity.ok(ResponseObject.builder()
                 .message("Get user by id successfully")
                 .status(HttpStatus.OK)
-                .data(user)
+                .data(UserResponse.from(user))
                 .build());
     }
 
@@ -49,6 +147,8 @@ public class UserController {
     public ResponseEntity<?> login(
             @Valid @RequestBody UserLoginDTO userLoginDTO
     ) {
+        // Trước mọi truy vấn DB/BCrypt; 429 do GlobalExceptionHandler trả về
+        authRateLimiter.checkUsername(userLoginDTO.getUserName());
         // Kiểm tra thông tin đăng nhập và sinh token
         try {
             String token = userService.login(
@@ -61,6 +161,8 @@ public class UserController {
                     .message("login successfully")
                     .token(token)
                     .build());
+        } catch (ServiceBusyException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -72,15 +174,41 @@ public class UserController {
             BindingResult result,
             @RequestParam(value = "avatar", required = false) MultipartFile avatarlFile
     ) throws IOException {
+        authRateLimiter.checkUsername(user.getUsername());
         User savedUser = userService.saveUserWithAvatar(user, avatarlFile);
         return ResponseEntity.ok(
                 ResponseObject.builder()
                         .message("Create new book successfully")
                         .status(HttpStatus.CREATED)
-                        .data(savedUser)
+                        .data(UserResponse.from(savedUser))
                         .build());
     }
 
+    // Body được đọc dần từng dòng, chèn theo batch JDBC; lỗi từng dòng được trả về thay vì hủy cả file
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ResponseObject> importUsers(
+            @RequestHeader("Content-Type") String contentType,
+            InputStream body
+    ) throws IOException {
+        UserImportResponse result;
+        try {
+            result = MediaType.parseMediaType(contentType).isCompatibleWith(APPLICATION_NDJSON)
+                    ? userImportService.importNdjson(body)
+                    : userImportService.importCsv(body);
+        } catch (InvalidParamException e) {
+            return ResponseEntity.badRequest().body(ResponseObject.builder()
+                    .message(e.getMessage())
+                    .status(HttpStatus.BAD_REQUEST)
+                    .build());
+        }
+        return ResponseEntity.ok(ResponseObject.builder()
+                .message("Import users successfully")
+                .status(HttpStatus.OK)
+                .data(result)
+                .build());
+    }
+
     @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
     @PutMapping(value = "/{id}", consumes = {"multipart/form-data"})
     public ResponseEntity<ResponseObject> updateUser(
@@ -94,10 +222,25 @@ public class UserController {
                 ResponseObject.builder()
                         .message("Create new book successfully")
                         .status(HttpStatus.CREATED)
-                        .data(savedUser)
+                        .data(UserResponse.from(savedUser))
                         .build());
     }
 
+    // Chỉ gửi các trường cần đổi; kèm "version" đã đọc để nhận 409 nếu user đã bị sửa bởi request khác
+    @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
+    @PatchMapping(value = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ResponseObject> patchUser(
+            @PathVariable("id") Long userId,
+            @Valid @RequestBody UserPatchDTO patch
+    ) throws DataNotFoundException {
+        User savedUser = userService.patchUser(userId, patch);
+        return ResponseEntity.ok(ResponseObject.builder()
+                .message("Update user successfully")
+                .status(HttpStatus.OK)
+                .data(UserResponse.from(savedUser))
+                .build());
+    }
+
     @PreAuthorize("hasRole('ROLE_USER') or hasRole('ROLE_ADMIN')")
     @PostMapping("/details")
     public ResponseEntity<ResponseObject> getUserDetails(
@@ -109,7 +252,7 @@ public class UserController {
             return ResponseEntity.ok(ResponseObject.builder()
                     .message("get detail user successfully")
                     .status(HttpStatus.CREATED)
-                    .data(user)
+                    .data(UserResponse.from(user))
                     .build());
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -125,4 +268,23 @@ public class UserController {
                 .status(HttpStatus.OK)
                 .build());
     }
+
+    // Khóa/mở khóa hoặc đổi role nhiều user bằng UPDATE theo tập, không nạp entity
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/bulk")
+    public ResponseEntity<ResponseObject> bulkUpdate(@Valid @RequestBody BulkUserUpdateDTO request) {
+        try {
+            BulkUpdateResponse result = userService.bulkUpdate(request);
+            return ResponseEntity.ok(ResponseObject.builder()
+                    .message("Bulk update users successfully")
+                    .status(HttpStatus.OK)
+                    .data(result)
+                    .build());
+        } catch (InvalidParamException e) {
+            return ResponseEntity.badRequest().body(ResponseObject.builder()
+                    .message(e.getMessage())
+                    .status(HttpStatus.BAD_REQUEST)
+                    .build());
+        }
+    }
 }
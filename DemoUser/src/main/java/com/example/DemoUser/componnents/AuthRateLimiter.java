@@ -0,0 +1,150 @@
+package com.example.DemoUser.componnents;
+
+import com.example.DemoUser.exceptions.TooManyRequestsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets for the unauthenticated login and register routes, one set per client IP
+ * and one per username, checked before any database lookup or BCrypt work.
+ * <p>
+ * A bucket holds {@code capacity} requests and refills one every {@code refill-interval}.
+ * It is stored as a single {@link AtomicLong}, the time at which it would be full again
+ * (GCRA), and updated with a compare-and-set, so checks never lock. Buckets live in a
+ * size-bounded Caffeine cache and are evicted after {@code idle-eviction} without
+ * requests; an evicted bucket is full anyway once the idle time exceeds
+ * {@code capacity * refill-interval}. Admitted/rejected counts are published as
+ * {@code rate.limiter.requests} and the check itself as the {@code rate.limiter} timer.
+ */
+@Component
+public class AuthRateLimiter {
+    private final boolean enabled;
+    private final LatencyMetrics latencyMetrics;
+    private final Limit clients;
+    private final Limit usernames;
+    private final LongSupplier nanoTime;
+
+    @Autowired
+    public AuthRateLimiter(@Value("${app.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${app.rate-limit.max-keys:100000}") long maxKeys,
+                           @Value("${app.rate-limit.idle-eviction:10m}") Duration idleEviction,
+                           @Value("${app.rate-limit.client.capacity:20}") int clientCapacity,
+                           @Value("${app.rate-limit.client.refill-interval:1s}") Duration clientRefill,
+                           @Value("${app.rate-limit.username.capacity:5}") int usernameCapacity,
+                           @Value("${app.rate-limit.username.refill-interval:6s}") Duration usernameRefill,
+                           LatencyMetrics latencyMetrics,
+                           MeterRegistry meterRegistry) {
+        this(enabled, maxKeys, idleEviction, clientCapacity, clientRefill, usernameCapacity, usernameRefill,
+                latencyMetrics, meterRegistry, System::nanoTime);
+    }
+
+    // Tests truyền đồng hồ giả để điều khiển thời gian refill
+    AuthRateLimiter(boolean enabled, long maxKeys, Duration idleEviction,
+                    int clientCapacity, Duration clientRefill,
+                    int usernameCapacity, Duration usernameRefill,
+                    LatencyMetrics latencyMetrics, MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        this.enabled = enabled;
+        this.nanoTime = nanoTime;
+        this.latencyMetrics = latencyMetrics;
+        this.clients = new Limit("client", clientCapacity, clientRefill, maxKeys, idleEviction, meterRegistry);
+        this.usernames = new Limit("username", usernameCapacity, usernameRefill, maxKeys, idleEviction, meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @throws TooManyRequestsException when the client's bucket is empty
+     */
+    public void checkClient(String clientAddress) {
+        check(clients, clientAddress);
+    }
+
+    /**
+     * @throws TooManyRequestsException when the username's bucket is empty
+     */
+    public void checkUsername(String username) {
+        if (username != null && !username.isBlank()) {
+            check(usernames, username.trim().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private void check(Limit limit, String key) {
+        if (!enabled) {
+            return;
+        }
+        long startedAt = nanoTime.getAsLong();
+        long waitNanos = limit.tryAcquire(key, startedAt);
+        latencyMetrics.record("rate.limiter", limit.name, "auth", nanoTime.getAsLong() - startedAt);
+        if (waitNanos > 0) {
+            limit.rejected.increment();
+            throw new TooManyRequestsException("Too many requests, please retry later",
+                    Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+        }
+        limit.admitted.increment();
+    }
+
+    static final class Limit {
+        private final String name;
+        private final long intervalNanos;
+        private final long burstNanos;
+        // Thời điểm bucket đầy trở lại; Long.MIN_VALUE = bucket mới, đang đầy
+        private final Cache<String, AtomicLong> buckets;
+        private final Counter admitted;
+        private final Counter rejected;
+
+        Limit(String name, int capacity, Duration refillInterval, long maxKeys, Duration idleEviction, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.intervalNanos = refillInterval.toNanos();
+            this.burstNanos = intervalNanos * capacity;
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maxKeys)
+                    .expireAfterAccess(idleEviction)
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, buckets, "rate.limiter." + name);
+            this.admitted = counter(meterRegistry, name, "admitted");
+            this.rejected = counter(meterRegistry, name, "rejected");
+        }
+
+        /**
+         * Takes one request from the bucket; returns 0 when admitted, otherwise the
+         * nanoseconds until the next one would be.
+         */
+        long tryAcquire(String key, long now) {
+            AtomicLong fullAt = buckets.get(key, ignored -> new AtomicLong(Long.MIN_VALUE));
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + intervalNanos;
+                long waitNanos = next - now - burstNanos;
+                if (waitNanos > 0) {
+                    return waitNanos;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        private static Counter counter(MeterRegistry meterRegistry, String limit, String outcome) {
+            return Counter.builder("rate.limiter.requests")
+                    .description("Login/register requests checked by the rate limiter")
+                    .tag("limit", limit)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.example.DemoUser.componnents;
+
+import com.example.DemoUser.exceptions.UnsupportedAvatarException;
+import com.example.DemoUser.repositories.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed avatar storage under {@code app.upload-dir}.
+ * <p>
+ * Uploads are streamed to a temp file in fixed-size chunks while their SHA-256 is
+ * computed, then moved to {@code <sha256>.<ext>}; identical avatars are therefore stored
+ * once. The size limit is enforced while streaming. Only PNG, JPEG, GIF and WebP are
+ * accepted, recognised by their magic bytes, and {@code <ext>} is chosen from the detected
+ * format rather than the client's file name, so every stored file is served as an image. Files that may have become unused
+ * are removed by a background cleanup queue, and only when no user references them.
+ * <p>
+ * A stored file stays claimed until the caller {@link #release releases} it after the
+ * transaction that references it has ended: until then the reference may not be visible
+ * to the cleanup query yet. Reusing an existing file and deleting it are serialized per
+ * file name, so a cleanup can never remove a file that an upload has just reused.
+ */
+@Slf4j
+@Component
+public class AvatarStorage {
+    private static final long CHUNK_SIZE = 64 * 1024;
+    // <sha256>[_<size>].<ext>, hoặc file cũ <uuid>_<tên gốc> lưu trước khi đặt tên theo hash; không khớp file .tmp
+    private static final Pattern FILE_NAME = Pattern.compile(
+            "([0-9a-f]{64}(_\\d{1,5})?|[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}_[A-Za-z0-9._-]{1,100})"
+                    + "\\.(png|jpg|jpeg|gif|webp)");
+    private static final Map<String, MediaType> IMAGE_TYPES = Map.of(
+            "png", MediaType.IMAGE_PNG,
+            "jpg", MediaType.IMAGE_JPEG,
+            "jpeg", MediaType.IMAGE_JPEG,
+            "gif", MediaType.IMAGE_GIF,
+            "webp", MediaType.parseMediaType("image/webp"));
+    private static final List<String> VARIANT_EXTENSIONS = List.of("jpg", "png");
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("([0-9a-f]{64})(\\.[a-z0-9]{1,5})?");
+    private static final int LOCK_STRIPES = 64;
+
+    private final UserRepository userRepository;
+    private final String uploadDir;
+    private final Path uploadPath;
+    private final long maxSize;
+    private final List<Integer> thumbnailSizes;
+    private final ThreadPoolExecutor cleanupExecutor;
+    // Bên xóa giữ lock trong lúc truy vấn DB, xem VirtualThreadPinningMonitor
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    // Tên file -> số upload đã store() nhưng chưa release(); chỉ sửa khi giữ lock của tên file đó
+    private final Map<String, Integer> claims = new ConcurrentHashMap<>();
+    // ETag của file cũ (tên UUID, trước khi lưu theo hash) được tính một lần rồi giữ lại
+    private final Cache<String, String> legacyEtags = Caffeine.newBuilder().maximumSize(10_000).build();
+
+    public AvatarStorage(UserRepository userRepository,
+                         @Value("${app.upload-dir}") String uploadDir,
+                         @Value("${app.avatar.max-size:5MB}") DataSize maxSize,
+                         @Value("${app.avatar.cleanup-queue-capacity:1000}") int cleanupQueueCapacity,
+                         @Value("${app.avatar.thumbnail-sizes:64,128,256}") List<Integer> thumbnailSizes,
+                         MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.uploadDir = uploadDir;
+        this.uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.maxSize = maxSize.toBytes();
+        this.thumbnailSizes = thumbnailSizes.stream().sorted().toList();
+        // Hàng đợi đầy thì bỏ qua: file mồ côi chỉ tốn dung lượng, không ảnh hưởng dữ liệu
+        this.cleanupExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cleanupQueueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "avatar-cleanup");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+        Gauge.builder("avatar.cleanup.queue.size", cleanupExecutor, pool -> pool.getQueue().size()).register(meterRegistry);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Streams the upload to disk and returns the avatar path to store in {@code User.avatar}.
+     * The file is claimed until {@link #release} is called with the returned path.
+     */
+    public String store(MultipartFile avatarFile) throws IOException {
+        Files.createDirectories(uploadPath);
+        Path tempFile = Files.createTempFile(uploadPath, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream inputStream = new DigestInputStream(avatarFile.getInputStream(), digest);
+                 ReadableByteChannel source = Channels.newChannel(inputStream);
+                 FileChannel target = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                long position = 0;
+                long transferred;
+                while ((transferred = target.transferFrom(source, position, CHUNK_SIZE)) > 0) {
+                    position += transferred;
+                    if (position > maxSize) {
+                        throw new MaxUploadSizeExceededException(maxSize);
+                    }
+                }
+            }
+            String fileName = HexFormat.of().formatHex(digest.digest()) + "." + imageExtension(tempFile);
+            Path filePath = uploadPath.resolve(fileName);
+            ReentrantLock lock = lockFor(fileName);
+            lock.lock();
+            try {
+                if (Files.exists(filePath)) {
+                    Files.delete(tempFile);
+                } else {
+                    try {
+                        Files.move(tempFile, filePath, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (FileAlreadyExistsException e) {
+                        // Một request khác vừa lưu cùng nội dung
+                        Files.deleteIfExists(tempFile);
+                    }
+                }
+                claims.merge(fileName, 1, Integer::sum);
+            } finally {
+                lock.unlock();
+            }
+            return avatarPath(filePath);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Ends the claim taken by {@link #store}; call it once the transaction that saved
+     * {@code avatarPath} has committed or rolled back.
+     */
+    public void release(String avatarPath) {
+        Path file = avatarPath == null || avatarPath.isEmpty() ? null : resolve(avatarPath);
+        if (file == null) {
+            return;
+        }
+        String fileName = file.getFileName().toString();
+        ReentrantLock lock = lockFor(fileName);
+        lock.lock();
+        try {
+            claims.computeIfPresent(fileName, (name, count) -> count > 1 ? count - 1 : null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues the file behind {@code avatarPath} for deletion once no user references it.
+     */
+    public void deleteLater(String avatarPath) {
+        if (avatarPath == null || avatarPath.isEmpty()) {
+            return;
+        }
+        cleanupExecutor.execute(() -> {
+            try {
+                Path file = resolve(avatarPath);
+                if (file == null) {
+                    return;
+                }
+                String fileName = file.getFileName().toString();
+                ReentrantLock lock = lockFor(fileName);
+                lock.lock();
+                try {
+                    // Upload đang dùng lại file này chưa commit thì chưa thấy được qua truy vấn
+                    if (claims.containsKey(fileName) || userRepository.existsByAvatar(avatarPath)) {
+                        return;
+                    }
+                    Files.deleteIfExists(file);
+                    for (int size : thumbnailSizes) {
+                        for (String extension : VARIANT_EXTENSIONS) {
+                            Files.deleteIfExists(variantFile(file, size, extension));
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            } catch (Exception e) {
+                log.warn("Cannot delete avatar {}: {}", avatarPath, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Maps a stored avatar path ("/uploads/abc.png") to a file inside the upload directory,
+     * or {@code null} if it points elsewhere.
+     */
+    public Path resolve(String avatarPath) {
+        Path file = Paths.get(avatarPath.substring(1)).toAbsolutePath().normalize(); // Bỏ dấu "/" đầu tiên
+        return file.startsWith(uploadPath) ? file : null;
+    }
+
+    /**
+     * Returns the avatar file called {@code fileName} in the upload directory, or
+     * {@code null} if the name is invalid or no such file exists.
+     */
+    public Path findFile(String fileName) {
+        if (!FILE_NAME.matcher(fileName).matches()) {
+            return null;
+        }
+        Path file = uploadPath.resolve(fileName).normalize();
+        return file.startsWith(uploadPath) && Files.isRegularFile(file) ? file : null;
+    }
+
+    /**
+     * The value stored in {@code User.avatar} for a file in the upload directory.
+     */
+    public String avatarPath(Path file) {
+        return "/" + uploadDir + file.getFileName();
+    }
+
+    /**
+     * Content type to serve {@code file} with, from the whitelist of image types, or
+     * {@code null} if its extension is not one of them.
+     */
+    public MediaType mediaType(Path file) {
+        String fileName = file.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? null : IMAGE_TYPES.get(fileName.substring(dot + 1));
+    }
+
+    public List<Integer> thumbnailSizes() {
+        return thumbnailSizes;
+    }
+
+    /**
+     * Path of the {@code size} px variant of {@code original}: {@code <name>_<size>.<extension>}.
+     */
+    public Path variantFile(Path original, int size, String extension) {
+        String fileName = original.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String stem = dot < 0 ? fileName : fileName.substring(0, dot);
+        return original.resolveSibling(stem + "_" + size + "." + extension);
+    }
+
+    /**
+     * Smallest already generated variant that is at least {@code minSize} px, or
+     * {@code null} if there is none yet.
+     */
+    public Path smallestVariant(Path original, int minSize) {
+        for (int size : thumbnailSizes) {
+            if (size < minSize) {
+                continue;
+            }
+            for (String extension : VARIANT_EXTENSIONS) {
+                Path variant = variantFile(original, size, extension);
+                if (Files.isRegularFile(variant)) {
+                    return variant;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Strong ETag derived from the file content: the name itself for content-addressed
+     * files, otherwise the SHA-256 of the file computed once.
+     */
+    public String etag(Path file) {
+        String fileName = file.getFileName().toString();
+        Matcher matcher = CONTENT_ADDRESSED.matcher(fileName);
+        if (matcher.matches()) {
+            return "\"" + matcher.group(1) + "\"";
+        }
+        return legacyEtags.get(fileName, key -> {
+            MessageDigest digest = sha256();
+            try (InputStream inputStream = new DigestInputStream(Files.newInputStream(file), digest)) {
+                inputStream.transferTo(OutputStream.nullOutputStream());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return "\"" + HexFormat.of().formatHex(digest.digest()) + "\"";
+        });
+    }
+
+    private ReentrantLock lockFor(String fileName) {
+        return locks[Math.floorMod(fileName.hashCode(), LOCK_STRIPES)];
+    }
+
+    // Nhận diện định dạng theo magic bytes, không tin tên file hay Content-Type client gửi lên
+    private static String imageExtension(Path file) throws IOException {
+        byte[] header = new byte[12];
+        int length;
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            length = inputStream.readNBytes(header, 0, header.length);
+        }
+        if (startsWith(header, length, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "png";
+        }
+        if (startsWith(header, length, 0, 0xFF, 0xD8, 0xFF)) {
+            return "jpg";
+        }
+        if (startsWith(header, length, 0, 'G', 'I', 'F', '8') && length >= 6
+                && (header[4] == '7' || header[4] == '9') && header[5] == 'a') {
+            return "gif";
+        }
+        if (startsWith(header, length, 0, 'R', 'I', 'F', 'F') && startsWith(header, length, 8, 'W', 'E', 'B', 'P')) {
+            return "webp";
+        }
+        throw new UnsupportedAvatarException("Avatar must be a PNG, JPEG, GIF or WebP image");
+    }
+
+    private static boolean startsWith(byte[] header, int length, int offset, int... magic) {
+        if (length < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (header[offset + i] != (byte) magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        cleanupExecutor.shutdown();
+    }
+}
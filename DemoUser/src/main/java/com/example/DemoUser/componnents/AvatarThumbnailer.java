@@ -0,0 +1,190 @@
+package com.example.DemoUser.componnents;
+
+import com.example.DemoUser.repositories.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates fixed-size avatar variants ({@code app.avatar.thumbnail-sizes}) off the
+ * request path. Each source image is decoded once per job and every variant is written
+ * atomically, so a retried job only fills in what is missing. When the bounded queue is
+ * full the job is dropped; {@code AvatarController} re-submits it the next time a
+ * variant is requested.
+ * <p>
+ * Dimensions are read from the image header before decoding: images above
+ * {@code app.avatar.thumbnails.max-pixels} are skipped, so a small file that claims huge
+ * dimensions cannot exhaust the heap, and larger ones are decoded subsampled to about
+ * twice the largest variant.
+ */
+@Slf4j
+@Component
+public class AvatarThumbnailer {
+    private final AvatarStorage avatarStorage;
+    private final UserRepository userRepository;
+    private final long maxPixels;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final Timer processingTimer;
+    private final Counter rejected;
+
+    public AvatarThumbnailer(AvatarStorage avatarStorage,
+                             UserRepository userRepository,
+                             @Value("${app.avatar.thumbnails.threads:2}") int threads,
+                             @Value("${app.avatar.thumbnails.queue-capacity:100}") int queueCapacity,
+                             @Value("${app.avatar.thumbnails.max-pixels:40000000}") long maxPixels,
+                             MeterRegistry meterRegistry) {
+        this.avatarStorage = avatarStorage;
+        this.userRepository = userRepository;
+        this.maxPixels = maxPixels;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "avatar-thumbnailer-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.processingTimer = Timer.builder("avatar.thumbnails.processing").register(meterRegistry);
+        this.rejected = Counter.builder("avatar.thumbnails.rejected").register(meterRegistry);
+        Gauge.builder("avatar.thumbnails.queue.size", executor, pool -> pool.getQueue().size()).register(meterRegistry);
+    }
+
+    /**
+     * Queues variant generation for the avatar stored at {@code avatarPath}; a no-op if
+     * the same avatar is already queued or being processed.
+     */
+    public void submit(String avatarPath) {
+        if (avatarPath == null || avatarPath.isEmpty() || !inFlight.add(avatarPath)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    processingTimer.record(() -> generate(avatarPath));
+                } finally {
+                    inFlight.remove(avatarPath);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(avatarPath);
+            rejected.increment();
+        }
+    }
+
+    private void generate(String avatarPath) {
+        try {
+            Path original = avatarStorage.resolve(avatarPath);
+            if (original == null || !Files.isRegularFile(original)) {
+                return;
+            }
+            BufferedImage source = read(original, avatarPath);
+            if (source == null) {
+                return; // không phải ảnh ImageIO đọc được, hoặc quá lớn
+            }
+            boolean hasAlpha = source.getColorModel().hasAlpha();
+            String extension = hasAlpha ? "png" : "jpg";
+            List<String> variants = new ArrayList<>();
+            for (int size : avatarStorage.thumbnailSizes()) {
+                Path variant = avatarStorage.variantFile(original, size, extension);
+                if (!Files.exists(variant)) {
+                    Path tempFile = Files.createTempFile(variant.getParent(), "variant-", ".tmp");
+                    try {
+                        // Không phóng to: ảnh nhỏ hơn kích thước variant được giữ nguyên kích thước
+                        int target = Math.min(size, Math.max(source.getWidth(), source.getHeight()));
+                        ImageIO.write(scale(source, target, hasAlpha), extension, tempFile.toFile());
+                        Files.move(tempFile, variant, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    } finally {
+                        Files.deleteIfExists(tempFile);
+                    }
+                }
+                variants.add(avatarStorage.avatarPath(variant));
+            }
+            userRepository.updateAvatarVariants(avatarPath, String.join(",", variants));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cannot generate thumbnails for {}: {}", avatarPath, e.getMessage());
+        }
+    }
+
+    private BufferedImage read(Path original, String avatarPath) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // Kích thước lấy từ header, chưa cấp phát bộ nhớ cho pixel nào
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    log.warn("Skipped thumbnails for {}: {}x{} exceeds {} pixels", avatarPath, width, height, maxPixels);
+                    return null;
+                }
+                List<Integer> sizes = avatarStorage.thumbnailSizes();
+                int step = Math.max(1, Math.max(width, height) / (2 * sizes.get(sizes.size() - 1)));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Thu nhỏ nhiều bước (mỗi bước tối đa 1/2) để ảnh không bị răng cưa khi dùng bilinear
+    private static BufferedImage scale(BufferedImage source, int size, boolean hasAlpha) {
+        double ratio = (double) size / Math.max(source.getWidth(), source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        int type = hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
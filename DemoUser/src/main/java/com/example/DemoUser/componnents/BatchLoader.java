@@ -0,0 +1,140 @@
+package com.example.DemoUser.componnents;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent single-key loads into one bulk load, DataLoader-style.
+ * <p>
+ * The first caller of a window becomes its leader: it waits up to {@code window} for
+ * other callers to add their keys, then runs {@code loadAll} once for the whole batch on
+ * its own thread and hands every caller its value. A batch that reaches
+ * {@code maxBatchSize} is dispatched straight away by the caller that filled it. No
+ * extra threads are involved, and a lone caller pays at most {@code window} of extra
+ * latency. Keys missing from the returned map load as {@code null}; a failure of
+ * {@code loadAll} is rethrown to every caller of the batch.
+ * <p>
+ * Batch sizes are published as the {@code batch.loader.size} summary tagged with
+ * {@code name}.
+ */
+public final class BatchLoader<K, V> {
+    private final Function<Set<K>, Map<K, V>> loadAll;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final DistributionSummary batchSizes;
+
+    // Leader chờ DB; ReentrantLock thay vì synchronized, xem VirtualThreadPinningMonitor
+    private final ReentrantLock lock = new ReentrantLock();
+    private Batch<K, V> pending;
+
+    public BatchLoader(String name,
+                       Function<Set<K>, Map<K, V>> loadAll,
+                       Duration window,
+                       int maxBatchSize,
+                       MeterRegistry meterRegistry) {
+        this.loadAll = loadAll;
+        this.windowNanos = Math.max(0, window.toNanos());
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.batchSizes = DistributionSummary.builder("batch.loader.size")
+                .description("Keys loaded by one coalesced bulk load")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public V load(K key) {
+        Batch<K, V> batch;
+        CompletableFuture<V> result;
+        boolean leader = false;
+        boolean full = false;
+        lock.lock();
+        try {
+            if (pending == null) {
+                pending = new Batch<>();
+                leader = true;
+            }
+            batch = pending;
+            result = batch.results.computeIfAbsent(key, k -> new CompletableFuture<>());
+            if (batch.results.size() >= maxBatchSize) {
+                pending = null;
+                full = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (full) {
+            dispatch(batch);
+        } else if (leader) {
+            try {
+                // Kết thúc sớm nếu batch đã đầy và được caller khác gửi đi
+                return result.get(windowNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                detach(batch);
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                detach(batch);
+                dispatch(batch);
+            } catch (ExecutionException e) {
+                throw rethrow(e.getCause());
+            }
+        }
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    private void detach(Batch<K, V> batch) {
+        lock.lock();
+        try {
+            if (pending == batch) {
+                pending = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Batch đã tách khỏi pending nên không còn ai thêm key vào results
+    private void dispatch(Batch<K, V> batch) {
+        if (!batch.dispatched.compareAndSet(false, true)) {
+            return;
+        }
+        batchSizes.record(batch.results.size());
+        try {
+            Map<K, V> loaded = loadAll.apply(batch.results.keySet());
+            batch.results.forEach((key, result) -> result.complete(loaded.get(key)));
+        } catch (RuntimeException | Error e) {
+            batch.results.values().forEach(result -> result.completeExceptionally(e));
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new CompletionException(cause);
+    }
+
+    private static final class Batch<K, V> {
+        private final Map<K, CompletableFuture<V>> results = new LinkedHashMap<>();
+        private final AtomicBoolean dispatched = new AtomicBoolean();
+    }
+}
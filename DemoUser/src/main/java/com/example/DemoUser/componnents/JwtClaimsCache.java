@@ -0,0 +1,83 @@
+package com.example.DemoUser.componnents;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.function.Function;
+
+/**
+ * Cache of already verified tokens, keyed by the SHA-256 digest of the raw token so
+ * bearer tokens are never kept in memory. An entry never outlives the token's own
+ * {@code exp} claim. Hit/miss/eviction counters are published as {@code cache.*}
+ * meters with {@code cache=jwt.claims}.
+ */
+@Component
+public class JwtClaimsCache {
+    private final boolean enabled;
+    private final Cache<String, VerifiedToken> cache;
+
+    public JwtClaimsCache(@Value("${jwt.cache.enabled:true}") boolean enabled,
+                          @Value("${jwt.cache.maximum-size:10000}") long maximumSize,
+                          @Value("${jwt.cache.ttl:300}") long ttlSeconds,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        long ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        long untilExpiration = Duration.ofMillis(
+                                value.expiration().getTime() - System.currentTimeMillis()).toNanos();
+                        return Math.max(0, Math.min(ttlNanos, untilExpiration));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.claims");
+    }
+
+    /**
+     * Returns the cached claims for {@code token}, or verifies it with {@code verifier}
+     * and caches the result. Verification failures are propagated and never cached.
+     */
+    public VerifiedToken get(String token, Function<String, VerifiedToken> verifier) {
+        if (!enabled) {
+            return verifier.apply(token);
+        }
+        return cache.get(digest(token), key -> verifier.apply(token));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
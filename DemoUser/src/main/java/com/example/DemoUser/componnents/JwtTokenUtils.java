@@ -2,23 +2,44 @@ package com.example.DemoUser.componnents;
 
 import com.example.DemoUser.exceptions.InvalidParamException;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.io.Serializer;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.security.Key;
 import java.security.SecureRandom;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Properties;
+import java.util.ServiceLoader;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class JwtTokenUtils {
@@ -26,20 +47,149 @@ public class JwtTokenUtils {
     private int expiration; //save to an environment variable
     @Value("${jwt.secretKey}")
     private String secretKey;
+    // Danh sách key dạng "kid:base64Secret,kid2:base64Secret2", dùng để xoay vòng key
+    @Value("${jwt.keys:}")
+    private String keys;
+    @Value("${jwt.active-key-id:}")
+    private String activeKeyId;
+    // File properties (keys=..., active-key-id=...) thay cho hai giá trị trên, đọc lại khi file thay đổi
+    @Value("${jwt.keys-file:}")
+    private String keysFile;
+    private final JwtClaimsCache claimsCache;
+
+    private final AtomicReference<KeySet> keySet = new AtomicReference<>();
+    private FileTime keysFileModified;
+    private JwtParser parser;
+    // Jwts.builder() tự tra ServiceLoader tìm serializer ở mỗi lần ký nếu không được truyền vào
+    private Serializer<Map<String, ?>> serializer;
+
+    /**
+     * Signing material, swapped atomically on rotation. Tokens without a {@code kid}
+     * header (issued before rotation was configured) are verified with {@code defaultKey}.
+     */
+    private record KeySet(Map<String, Key> keys, String activeKeyId, Key defaultKey) {
+        Key signingKey() {
+            return activeKeyId == null ? defaultKey : keys.get(activeKeyId);
+        }
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        if (keysFile.isBlank()) {
+            keySet.set(buildKeySet(parseKeys(keys), activeKeyId));
+        } else {
+            // Lỗi ở lần đọc đầu làm ứng dụng không khởi động, như cấu hình jwt.keys sai
+            keysFileModified = Files.getLastModifiedTime(Path.of(keysFile));
+            keySet.set(readKeysFile(Path.of(keysFile)));
+        }
+        serializer = loadSerializer();
+        // JwtParser là immutable và thread-safe; key được resolve theo kid tại thời điểm parse
+        parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        KeySet current = keySet.get();
+                        String kid = header.getKeyId();
+                        Key key = kid == null ? current.defaultKey() : current.keys().get(kid);
+                        if (key == null) {
+                            throw new SignatureException("Unknown jwt key id: " + kid);
+                        }
+                        return key;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Picks up a rotation written to {@code jwt.keys-file} and swaps the key ring without
+     * blocking in-flight requests: requests that already resolved a key finish with it,
+     * later ones see the new ring. Tokens signed with a key that is no longer listed stop
+     * being accepted. A file that cannot be read or names an unknown active key is logged
+     * and skipped, the current ring stays in use.
+     */
+    @Scheduled(fixedDelayString = "${jwt.keys-file-check-interval:10s}")
+    void reloadKeysFile() {
+        if (keysFile.isBlank()) {
+            return;
+        }
+        Path path = Path.of(keysFile);
+        try {
+            FileTime modified = Files.getLastModifiedTime(path);
+            if (modified.equals(keysFileModified)) {
+                return;
+            }
+            // Ghi nhận trước khi đọc: file lỗi chỉ bị log một lần, tới khi được sửa
+            keysFileModified = modified;
+            KeySet loaded = readKeysFile(path);
+            keySet.set(loaded);
+            claimsCache.invalidateAll();
+            log.info("Reloaded jwt keys from {}, active key id: {}", path, loaded.activeKeyId());
+        } catch (IOException | IllegalArgumentException | JwtException e) {
+            log.warn("Cannot reload jwt keys from {}, keeping the current keys: {}", path, e.getMessage());
+        }
+    }
+
+    private KeySet readKeysFile(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return buildKeySet(parseKeys(properties.getProperty("keys", "")), properties.getProperty("active-key-id"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Serializer<Map<String, ?>> loadSerializer() {
+        return ServiceLoader.load(Serializer.class).findFirst()
+                .orElseThrow(() -> new IllegalStateException("No jjwt JSON serializer on the classpath"));
+    }
+
+    private KeySet buildKeySet(Map<String, String> base64Keys, String newActiveKeyId) {
+        Map<String, Key> built = new HashMap<>();
+        base64Keys.forEach((kid, secret) -> built.put(kid, Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret))));
+        String active = newActiveKeyId == null || newActiveKeyId.isBlank() ? null : newActiveKeyId;
+        if (active != null && !built.containsKey(active)) {
+            throw new IllegalArgumentException("Active jwt key id '" + active + "' is not configured");
+        }
+        return new KeySet(Map.copyOf(built), active, getSignInKey());
+    }
+
+    private static Map<String, String> parseKeys(String value) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String entry : value.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid jwt.keys entry, expected kid:base64Secret");
+            }
+            result.put(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+        }
+        return result;
+    }
+
     public String generateToken(com.example.DemoUser.models.User user) throws Exception{
         //properties => claims
         Map<String, Object> claims = new HashMap<>();
         //this.generateSecretKey();
         claims.put("username", user.getUsername());
         claims.put("userId", user.getId());
+        // Dùng cho chế độ jwt.stateless: filter dựng Authentication từ claims mà không truy vấn DB
+        claims.put("role", user.getRole());
+        claims.put("active", user.isActive());
+        claims.put("ver", user.getTokenVersion());
         try {
-            String token = Jwts.builder()
+            KeySet current = keySet.get();
+            JwtBuilder builder = Jwts.builder()
+                    .serializeToJsonWith(serializer)
                     .setClaims(claims) //how to extract claims from this ?
                     .setSubject(user.getUsername())
                     .setExpiration(new Date(System.currentTimeMillis() + expiration * 1000L))
-                    .signWith(getSignInKey(), SignatureAlgorithm.HS256)
-                    .compact();
-            return token;
+                    .signWith(current.signingKey(), SignatureAlgorithm.HS256);
+            if (current.activeKeyId() != null) {
+                builder.setHeaderParam(JwsHeader.KEY_ID, current.activeKeyId());
+            }
+            return builder.compact();
         }catch (Exception e) {
             //you can "inject" Logger, instead System.out.println
             throw new InvalidParamException("Cannot create jwt token, error: "+e.getMessage());
@@ -59,11 +209,19 @@ public class JwtTokenUtils {
         return secretKey;
     }
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
+    }
+    /**
+     * Verifies the token signature once and returns its claims; repeated calls with the
+     * same token are served from {@link JwtClaimsCache} until the token expires.
+     */
+    public VerifiedToken verifyToken(String token) {
+        return claimsCache.get(token, value -> {
+            Claims claims = extractAllClaims(value);
+            return new VerifiedToken(claims.getSubject(), claims.get("userId", Long.class), claims.getExpiration(),
+                    claims.get("role", String.class), claims.get("active", Boolean.class),
+                    claims.get("ver", Integer.class));
+        });
     }
     public  <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
         final Claims claims = this.extractAllClaims(token);
@@ -71,15 +229,16 @@ public class JwtTokenUtils {
     }
     //check expiration
     public boolean isTokenExpired(String token) {
-        Date expirationDate = this.extractClaim(token, Claims::getExpiration);
-        return expirationDate.before(new Date());
+        return verifyToken(token).isExpired();
     }
     public String extractCode(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verifyToken(token).subject();
     }
     public boolean validateToken(String token, UserDetails userDetails) {
-        String code = extractCode(token);
-        return (code.equals(userDetails.getUsername()))
-                && !isTokenExpired(token);
+        return validateToken(verifyToken(token), userDetails);
+    }
+    public boolean validateToken(VerifiedToken token, UserDetails userDetails) {
+        return token.subject().equals(userDetails.getUsername())
+                && !token.isExpired();
     }
 }
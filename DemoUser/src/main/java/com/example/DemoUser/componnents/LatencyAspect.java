@@ -0,0 +1,65 @@
+package com.example.DemoUser.componnents;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times the service, repository, JWT, BCrypt and avatar-file layers through
+ * {@link LatencyMetrics}. Failed calls are recorded too; calls a bean makes to itself
+ * bypass the proxy and are only counted in the outer call.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class LatencyAspect {
+    private final LatencyMetrics latencyMetrics;
+
+    @Around("execution(public * com.example.DemoUser.services.IUserService+.*(..))"
+            + " || execution(public * com.example.DemoUser.services.IUserImportService+.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "user.service", joinPoint.getSignature().getName(), "service");
+    }
+
+    @Around("execution(public * com.example.DemoUser.repositories.UserRepository+.*(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "user.repository", joinPoint.getSignature().getName(), "db");
+    }
+
+    @Around("execution(public * com.example.DemoUser.componnents.JwtTokenUtils.generateToken(..))")
+    public Object timeTokenSigning(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "jwt.tokens", "sign", "jwt");
+    }
+
+    @Around("execution(public * com.example.DemoUser.componnents.JwtTokenUtils.verifyToken(..))")
+    public Object timeTokenParsing(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "jwt.tokens", "parse", "jwt");
+    }
+
+    // Gồm cả thời gian chờ trong hàng đợi của pool băm; thời gian băm thuần nằm ở password.hashing
+    @Around("execution(public * com.example.DemoUser.componnents.PasswordHasher.encode(..))"
+            + " || execution(public * com.example.DemoUser.componnents.PasswordHasher.encodeAll(..))"
+            + " || execution(public * com.example.DemoUser.componnents.PasswordHasher.matches(..))")
+    public Object timePasswordHashing(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "password.hasher", joinPoint.getSignature().getName(), "bcrypt");
+    }
+
+    @Around("execution(public * com.example.DemoUser.componnents.AvatarStorage.store(..))"
+            + " || execution(public * com.example.DemoUser.componnents.AvatarStorage.findFile(..))"
+            + " || execution(public * com.example.DemoUser.componnents.AvatarStorage.smallestVariant(..))"
+            + " || execution(public * com.example.DemoUser.componnents.AvatarStorage.etag(..))")
+    public Object timeAvatarIo(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "avatar.storage", joinPoint.getSignature().getName(), "avatar");
+    }
+
+    private Object time(ProceedingJoinPoint joinPoint, String name, String operation, String segment) throws Throwable {
+        long startedAt = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            latencyMetrics.record(name, operation, segment, System.nanoTime() - startedAt);
+        }
+    }
+}
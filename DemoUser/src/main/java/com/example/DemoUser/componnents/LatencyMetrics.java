@@ -0,0 +1,50 @@
+package com.example.DemoUser.componnents;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency timers for the hot path, one per {@code name} and {@code operation} tag.
+ * Percentiles come from Micrometer's HdrHistogram-based sliding window and are exported
+ * as {@code quantile} series on {@code /actuator/prometheus}. Each recording is also
+ * added to the current request's {@link RequestTimings}.
+ */
+@Component
+public class LatencyMetrics {
+    private final MeterRegistry meterRegistry;
+    private final double[] percentiles;
+    // name -> operation -> Timer: mỗi lần đo chỉ tra hai map, không dựng Timer.builder hay nối chuỗi khóa
+    private final Map<String, Map<String, Timer>> timers = new ConcurrentHashMap<>();
+
+    public LatencyMetrics(MeterRegistry meterRegistry,
+                          @Value("${app.metrics.percentiles:0.5,0.99,0.999}") double[] percentiles) {
+        this.meterRegistry = meterRegistry;
+        this.percentiles = percentiles;
+    }
+
+    public void record(String name, String operation, String segment, long nanos) {
+        timer(name, operation).record(nanos, TimeUnit.NANOSECONDS);
+        RequestTimings.add(segment, nanos);
+    }
+
+    public Timer timer(String name, String operation) {
+        Map<String, Timer> byOperation = timers.get(name);
+        if (byOperation == null) {
+            byOperation = timers.computeIfAbsent(name, key -> new ConcurrentHashMap<>());
+        }
+        Timer timer = byOperation.get(operation);
+        if (timer == null) {
+            timer = byOperation.computeIfAbsent(operation, key -> Timer.builder(name)
+                    .tag("operation", operation)
+                    .publishPercentiles(percentiles)
+                    .register(meterRegistry));
+        }
+        return timer;
+    }
+}
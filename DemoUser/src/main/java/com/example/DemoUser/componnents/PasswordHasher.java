@@ -0,0 +1,174 @@
+package com.example.DemoUser.componnents;
+
+import com.example.DemoUser.exceptions.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs every BCrypt hash/verify on a fixed, core-sized pool with a bounded queue so a
+ * login or register burst cannot take CPU away from the rest of the application.
+ * When the queue is full the caller gets a {@link ServiceBusyException} (503) at once
+ * instead of waiting.
+ * <p>
+ * The pool keeps platform threads when request handling runs on virtual threads: the
+ * caller only parks on the result, and CPU-bound hashing never occupies a carrier thread.
+ */
+@Component
+public class PasswordHasher {
+    private static final Pattern ENCODED = Pattern.compile("^(\\{(bcrypt|pbkdf2)}.+|\\$2[aby]?\\$\\d{2}\\$.{53})$");
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\{bcrypt}\\$2[aby]?\\$(\\d{2})\\$");
+
+    private final PasswordEncoder passwordEncoder;
+    private final int bcryptStrength;
+    private final ThreadPoolExecutor executor;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+                          @Value("${app.password-hashing.threads:0}") int threads,
+                          @Value("${app.password-hashing.queue-capacity:100}") int queueCapacity,
+                          @Value("${security.bcrypt.strength:10}") int bcryptStrength,
+                          MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.bcryptStrength = bcryptStrength;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.encodeTimer = Timer.builder("password.hashing").tag("operation", "encode").register(meterRegistry);
+        this.matchesTimer = Timer.builder("password.hashing").tag("operation", "matches").register(meterRegistry);
+        this.rejected = Counter.builder("password.hashing.rejected").register(meterRegistry);
+        Gauge.builder("password.hashing.queue.size", executor, pool -> pool.getQueue().size()).register(meterRegistry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword)));
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> matchesTimer.record(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+    }
+
+    /**
+     * Hashes in the background; completes exceptionally with {@link ServiceBusyException}
+     * when the pool is saturated, so callers can simply skip optional work.
+     */
+    public CompletableFuture<String> encodeAsync(CharSequence rawPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword)), executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new ServiceBusyException("Server is busy, please retry later"));
+        }
+    }
+
+    /**
+     * Hashes a batch in parallel for bulk jobs. At most one pool's worth of hashes is in
+     * flight at a time so interactive logins keep their queue slots; a hash that still
+     * cannot be queued runs on the calling thread instead of failing the batch. On a
+     * virtual thread it waits for the current window and is queued again instead.
+     */
+    public List<String> encodeAll(List<String> rawPasswords) {
+        List<String> encoded = new ArrayList<>(rawPasswords.size());
+        int window = executor.getMaximumPoolSize();
+        for (int from = 0; from < rawPasswords.size(); from += window) {
+            List<Future<String>> futures = new ArrayList<>(window);
+            for (String rawPassword : rawPasswords.subList(from, Math.min(from + window, rawPasswords.size()))) {
+                Callable<String> task = () -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword));
+                try {
+                    futures.add(executor.submit(task));
+                } catch (RejectedExecutionException e) {
+                    if (VirtualThreads.isCurrent()) {
+                        futures.forEach(PasswordHasher::await);
+                        futures.add(CompletableFuture.completedFuture(submit(task)));
+                    } else {
+                        futures.add(CompletableFuture.completedFuture(encodeTimer.record(() -> passwordEncoder.encode(rawPassword))));
+                    }
+                }
+            }
+            for (Future<String> future : futures) {
+                encoded.add(await(future));
+            }
+        }
+        return encoded;
+    }
+
+    /**
+     * Whether {@code password} already is a hash this application can verify, e.g. one
+     * exported by a partner system, rather than a raw password.
+     */
+    public boolean isEncoded(String password) {
+        return ENCODED.matcher(password).matches();
+    }
+
+    /**
+     * Whether {@code encodedPassword} was produced with a different scheme or parameters
+     * than the configured target. Unlike {@link PasswordEncoder#upgradeEncoding}, a BCrypt
+     * cost above the target also counts, so operators can lower the cost as well.
+     */
+    public boolean needsRehash(String encodedPassword) {
+        if (passwordEncoder.upgradeEncoding(encodedPassword)) {
+            return true;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != bcryptStrength;
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceBusyException("Server is busy, please retry later");
+        }
+        return await(future);
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.DemoUser.componnents;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to a replica and everything else to the primary.
+ * <p>
+ * A connection goes to a replica only when the current transaction is read-only, the
+ * current HTTP request (if any) is a GET or HEAD, the caller has not written recently
+ * ({@link ReadYourWrites}) and at least one replica is within the lag tolerance; replicas
+ * are picked round-robin. Reads made while serving a write request therefore see that
+ * request's own data. Must be wrapped in a {@code LazyConnectionDataSourceProxy} so the
+ * read-only flag is known before a connection is fetched.
+ * <p>
+ * Lag is measured with a heartbeat row: {@link #checkReplicaLag()} stamps
+ * {@code replication_heartbeat} on the primary and reads it back from every replica.
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+    public static final String PRIMARY = "primary";
+
+    private static final String UPDATE_HEARTBEAT = "UPDATE replication_heartbeat SET beat_millis = ? WHERE id = 1";
+    private static final String INSERT_HEARTBEAT = "INSERT INTO replication_heartbeat (id, beat_millis) VALUES (1, ?)";
+    private static final String SELECT_HEARTBEAT = "SELECT beat_millis FROM replication_heartbeat WHERE id = 1";
+
+    private final JdbcTemplate primary;
+    private final List<Replica> replicas;
+    private final Map<String, DataSource> replicaDataSources;
+    private final long maxLagMillis;
+    private final ReadYourWrites readYourWrites;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Counter primaryRoutes;
+
+    public ReadWriteRoutingDataSource(DataSource primary,
+                                      Map<String, DataSource> replicas,
+                                      Duration maxLag,
+                                      ReadYourWrites readYourWrites,
+                                      MeterRegistry meterRegistry) {
+        this.primary = new JdbcTemplate(primary);
+        this.maxLagMillis = maxLag.toMillis();
+        this.readYourWrites = readYourWrites;
+        this.replicaDataSources = replicas;
+        this.replicas = replicas.entrySet().stream()
+                .map(entry -> new Replica(entry.getKey(), new JdbcTemplate(entry.getValue()), meterRegistry))
+                .toList();
+        this.primaryRoutes = routeCounter(meterRegistry, PRIMARY);
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    /**
+     * Whether a read-only transaction started now could be served by a replica: the
+     * request and caller allow it and at least one replica is within the lag tolerance.
+     */
+    public boolean isReplicaReadAllowed() {
+        return isSafeRequest()
+                && !readYourWrites.isSticky()
+                && replicas.stream().anyMatch(replica -> replica.healthy);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && isSafeRequest()
+                && !readYourWrites.isSticky()) {
+            for (int attempt = 0; attempt < replicas.size(); attempt++) {
+                Replica replica = replicas.get(Math.floorMod(nextReplica.getAndIncrement(), replicas.size()));
+                if (replica.healthy) {
+                    replica.routes.increment();
+                    return replica.name;
+                }
+            }
+        }
+        primaryRoutes.increment();
+        return PRIMARY;
+    }
+
+    private static boolean isSafeRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            String method = servletAttributes.getRequest().getMethod();
+            return "GET".equals(method) || "HEAD".equals(method);
+        }
+        // Ngoài HTTP request (job nền): chỉ dựa vào cờ read-only của transaction
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.lag-check-interval:1s}")
+    public void checkReplicaLag() {
+        long now = System.currentTimeMillis();
+        try {
+            if (primary.update(UPDATE_HEARTBEAT, now) == 0) {
+                primary.update(INSERT_HEARTBEAT, now);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Cannot write replication heartbeat, reads stay on primary: {}", e.getMessage());
+            replicas.forEach(replica -> replica.healthy = false);
+            return;
+        }
+        for (Replica replica : replicas) {
+            try {
+                List<Long> beats = replica.jdbcTemplate.queryForList(SELECT_HEARTBEAT, Long.class);
+                replica.lagMillis = beats.isEmpty() || beats.get(0) == null
+                        ? Long.MAX_VALUE
+                        : Math.max(0, now - beats.get(0));
+            } catch (DataAccessException e) {
+                log.debug("Cannot read replication heartbeat from {}: {}", replica.name, e.getMessage());
+                replica.lagMillis = Long.MAX_VALUE;
+            }
+            boolean healthy = replica.lagMillis <= maxLagMillis;
+            if (healthy != replica.healthy) {
+                log.info("Replica {} {} (lag {} ms)", replica.name, healthy ? "back in rotation" : "taken out of rotation",
+                        replica.lagMillis == Long.MAX_VALUE ? "unknown" : replica.lagMillis);
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    // Pool của replica không phải bean nên phải tự đóng khi context tắt; primary do Spring đóng
+    @Override
+    public void close() throws Exception {
+        for (DataSource dataSource : replicaDataSources.values()) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static Counter routeCounter(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("datasource.routing")
+                .description("Connections handed out by the read/write routing datasource")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final JdbcTemplate jdbcTemplate;
+        private final Counter routes;
+        // Chưa đo được lag thì chưa nhận truy vấn đọc
+        private volatile boolean healthy;
+        private volatile long lagMillis = Long.MAX_VALUE;
+
+        Replica(String name, JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.jdbcTemplate = jdbcTemplate;
+            this.routes = routeCounter(meterRegistry, name);
+            Gauge.builder("datasource.replica.lag", this, replica -> replica.lagMillis == Long.MAX_VALUE
+                            ? Double.NaN : replica.lagMillis / 1000.0)
+                    .baseUnit("seconds")
+                    .tag("pool", name)
+                    .register(meterRegistry);
+        }
+    }
+}
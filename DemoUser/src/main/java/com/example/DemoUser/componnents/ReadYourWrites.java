@@ -0,0 +1,58 @@
+package com.example.DemoUser.componnents;
+
+import com.example.DemoUser.models.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Remembers which users were written recently so that their own reads keep going to the
+ * primary until replicas have caught up. A write marks the written user and the
+ * authenticated caller; {@link #isSticky()} is checked for the caller of the current
+ * request.
+ */
+@Component
+public class ReadYourWrites {
+    private final Cache<Long, Boolean> recentWriters;
+
+    public ReadYourWrites(@Value("${app.datasource.read-your-writes-window:10s}") Duration window) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    public void markWritten(Long... userIds) {
+        for (Long userId : userIds) {
+            if (userId != null) {
+                recentWriters.put(userId, Boolean.TRUE);
+            }
+        }
+        Long caller = currentUserId();
+        if (caller != null) {
+            recentWriters.put(caller, Boolean.TRUE);
+        }
+    }
+
+    // Dòng của user này vừa được ghi, replica có thể chưa có
+    public boolean isRecentlyWritten(Long userId) {
+        return userId != null && recentWriters.getIfPresent(userId) != null;
+    }
+
+    public boolean isSticky() {
+        return isRecentlyWritten(currentUserId());
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
+        return null;
+    }
+}
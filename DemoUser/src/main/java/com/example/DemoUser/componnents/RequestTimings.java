@@ -0,0 +1,59 @@
+package com.example.DemoUser.componnents;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Per-request latency breakdown rendered as a {@code Server-Timing} header.
+ * <p>
+ * Collection is switched on for the current thread by
+ * {@link com.example.DemoUser.filters.ServerTimingFilter}; everywhere else
+ * {@link #add} costs one ThreadLocal read. Segments nest (a service call includes its
+ * repository calls), so their durations overlap and do not add up to {@code total}.
+ */
+public final class RequestTimings {
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private final long startedAt = System.nanoTime();
+    // segment -> {số lần gọi, tổng nanos}
+    private final Map<String, long[]> segments = new LinkedHashMap<>();
+
+    private RequestTimings() {
+    }
+
+    public static RequestTimings begin() {
+        RequestTimings timings = new RequestTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    public static void add(String segment, long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            synchronized (timings) {
+                long[] totals = timings.segments.computeIfAbsent(segment, key -> new long[2]);
+                totals[0]++;
+                totals[1] += nanos;
+            }
+        }
+    }
+
+    public synchronized String header() {
+        StringJoiner header = new StringJoiner(", ");
+        segments.forEach((segment, totals) -> header.add(totals[0] == 1
+                ? segment + ";dur=" + millis(totals[1])
+                : segment + ";desc=\"" + totals[0] + " calls\";dur=" + millis(totals[1])));
+        header.add("total;dur=" + millis(System.nanoTime() - startedAt));
+        return header.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+}
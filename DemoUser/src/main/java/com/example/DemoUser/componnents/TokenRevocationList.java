@@ -0,0 +1,109 @@
+package com.example.DemoUser.componnents;
+
+import com.example.DemoUser.models.User;
+import com.example.DemoUser.models.UserTokenVersion;
+import com.example.DemoUser.repositories.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory deny-list for stateless authentication: the current {@code token_version}
+ * of every user whose row changed within the token lifetime. A token carrying an older
+ * version has been revoked.
+ * <p>
+ * Only users changed since {@code now - jwt.expiration} are kept, so the map stays small.
+ * It is updated immediately for writes made by this node, from the outbox events of
+ * other nodes ({@link UserChangeTailer}), and by polling the primary for rows whose
+ * {@code updated_at} is recent.
+ * <p>
+ * {@code updated_at} is stamped by the writing node's clock before commit, so a row can
+ * become visible with a stamp older than rows already read: a slow transaction, or a node
+ * whose clock is behind. Each poll therefore reads back {@code jwt.revocation.overlap}
+ * before the start of the previous poll; it must cover the longest write transaction plus
+ * the clock skew between nodes.
+ */
+@Slf4j
+@Component
+public class TokenRevocationList {
+    private final UserRepository userRepository;
+    private final TransactionTemplate primaryReads;
+    private final boolean enabled;
+    private final long expirationSeconds;
+    private final Duration overlap;
+
+    private final Map<Long, UserTokenVersion> versions = new ConcurrentHashMap<>();
+    // refresh giữ lock trong lúc chờ DB, xem VirtualThreadPinningMonitor
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile LocalDateTime watermark;
+
+    public TokenRevocationList(UserRepository userRepository,
+                               @Value("${jwt.stateless:false}") boolean enabled,
+                               @Value("${jwt.expiration}") long expirationSeconds,
+                               @Value("${jwt.revocation.overlap:1m}") Duration overlap,
+                               PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.expirationSeconds = expirationSeconds;
+        this.overlap = overlap;
+        // Transaction ghi riêng để luôn đọc từ primary, kể cả khi được gọi trong transaction read-only
+        this.primaryReads = new TransactionTemplate(transactionManager);
+        this.primaryReads.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // Mọi thay đổi có thể ảnh hưởng tới token còn hạn đều nằm trong khoảng này
+        this.watermark = LocalDateTime.now().minusSeconds(expirationSeconds);
+    }
+
+    public boolean isRevoked(Long userId, int tokenVersion) {
+        UserTokenVersion current = versions.get(userId);
+        return current != null && tokenVersion < current.tokenVersion();
+    }
+
+    // Chế độ có trạng thái không đọc deny-list; không có refresh để dọn nên map sẽ chỉ tăng
+    public void record(User user) {
+        if (!enabled) {
+            return;
+        }
+        merge(new UserTokenVersion(user.getId(), user.getTokenVersion(), LocalDateTime.now()));
+    }
+
+    // Cũng được gọi trực tiếp sau các cập nhật hàng loạt, nên không cho hai lần refresh chạy chồng nhau
+    @Scheduled(fixedDelayString = "${jwt.revocation.refresh-interval:5000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        refreshLock.lock();
+        try {
+            // Watermark theo đồng hồ của node này, không theo updated_at lớn nhất đã đọc:
+            // một dòng có timestamp ở tương lai (đồng hồ node khác chạy nhanh) không đẩy nó đi quá xa
+            LocalDateTime startedAt = LocalDateTime.now();
+            LocalDateTime since = watermark.minus(overlap);
+            primaryReads.executeWithoutResult(status ->
+                    userRepository.findTokenVersionsChangedSince(since).forEach(this::merge));
+            watermark = startedAt;
+            LocalDateTime horizon = LocalDateTime.now().minusSeconds(expirationSeconds);
+            versions.values().removeIf(entry -> entry.updatedAt().isBefore(horizon));
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Cannot refresh token revocation list: {}", e.getMessage());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private void merge(UserTokenVersion changed) {
+        versions.merge(changed.id(), changed,
+                (existing, candidate) -> candidate.tokenVersion() >= existing.tokenVersion() ? candidate : existing);
+    }
+}
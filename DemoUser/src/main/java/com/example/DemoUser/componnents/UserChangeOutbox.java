@@ -0,0 +1,85 @@
+package com.example.DemoUser.componnents;
+
+import com.example.DemoUser.models.UserChangeEvent;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Types;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Appends {@link UserChangeEvent}s to the {@code user_change_events} outbox.
+ * <p>
+ * Must be called inside the transaction that changes {@code users}, so an event is
+ * visible exactly when the change it describes is. Rows are written with a JDBC batch,
+ * like {@code UserImportService}, because {@code IDENTITY} ids rule out Hibernate batching
+ * and a bulk update appends one row per user.
+ */
+@Slf4j
+@Component
+public class UserChangeOutbox {
+    private static final String INSERT_SQL = "INSERT INTO user_change_events "
+            + "(change_type, user_id, username, previous_username, origin, created_millis) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    @Getter
+    private final boolean enabled;
+    @Getter
+    private final String nodeId;
+
+    public UserChangeOutbox(JdbcTemplate jdbcTemplate,
+                            @Value("${app.user-outbox.enabled:true}") boolean enabled,
+                            @Value("${app.user-outbox.node-id:}") String nodeId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        // Mỗi lần khởi động là một node mới: event ghi trước khi restart không còn là "của mình"
+        this.nodeId = nodeId == null || nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        log.info("User change outbox {} (node {})", enabled ? "enabled" : "disabled", this.nodeId);
+    }
+
+    public void append(UserChangeEvent.Type type, Long userId, String username, String previousUsername) {
+        appendAll(List.of(event(type, userId, username, previousUsername)));
+    }
+
+    public void appendIds(UserChangeEvent.Type type, Collection<Long> userIds) {
+        appendAll(userIds.stream().map(id -> event(type, id, null, null)).toList());
+    }
+
+    public void appendUsernames(UserChangeEvent.Type type, Collection<String> usernames) {
+        appendAll(usernames.stream().map(username -> event(type, null, username, null)).toList());
+    }
+
+    private void appendAll(List<UserChangeEvent> events) {
+        if (!enabled || events.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("User change events must be appended inside the transaction that writes users");
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), (ps, event) -> {
+            ps.setString(1, event.getType().name());
+            ps.setObject(2, event.getUserId(), Types.BIGINT);
+            ps.setString(3, event.getUsername());
+            ps.setString(4, event.getPreviousUsername());
+            ps.setString(5, event.getOrigin());
+            ps.setLong(6, event.getCreatedMillis());
+        });
+    }
+
+    private UserChangeEvent event(UserChangeEvent.Type type, Long userId, String username, String previousUsername) {
+        return UserChangeEvent.builder()
+                .type(type)
+                .userId(userId)
+                .username(username)
+                .previousUsername(previousUsername)
+                .origin(nodeId)
+                .createdMillis(System.currentTimeMillis())
+                .build();
+    }
+}
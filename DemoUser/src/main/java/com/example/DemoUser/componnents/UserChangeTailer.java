@@ -0,0 +1,283 @@
+package com.example.DemoUser.componnents;
+
+import com.example.DemoUser.models.User;
+import com.example.DemoUser.models.UserChangeEvent;
+import com.example.DemoUser.repositories.UserCache;
+import com.example.DemoUser.repositories.UserChangeEventRepository;
+import com.example.DemoUser.repositories.UserRepository;
+import com.example.DemoUser.repositories.UserSearchIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies user changes made by other nodes, read from the {@code user_change_events}
+ * outbox that {@link UserChangeOutbox} fills.
+ * <p>
+ * Every {@code app.user-outbox.poll-interval} the node reads the rows past the highest id
+ * it has seen, skips its own, and for the others evicts {@link UserCache} entries,
+ * re-indexes registered, updated and imported users in {@link UserSearchIndex} and
+ * records the new token version of updated and deactivated users in the
+ * {@link TokenRevocationList} (bulk updates, which name no user, trigger a full refresh of
+ * it instead). Tailing starts at the current maximum id:
+ * caches are empty at startup, so older events have nothing to invalidate.
+ * <p>
+ * {@code AUTO_INCREMENT} ids are allocated at insert but become visible at commit, so a
+ * lower id can show up after a higher one. Ids skipped over are remembered and looked up
+ * again on every poll until they appear or {@code app.user-outbox.gap-timeout} passes
+ * (a rolled back transaction never fills its id). The worst-case lag is therefore the
+ * poll interval for ordinary writes and the transaction duration for late commits.
+ * <p>
+ * Published meters: {@code user.outbox.lag} (commit-to-apply delay of remote events),
+ * {@code user.outbox.poll.age} (seconds since the last successful poll),
+ * {@code user.outbox.gaps} and the {@code user.outbox.events} counters.
+ */
+@Slf4j
+@Component
+public class UserChangeTailer {
+    // Quá nhiều id bị nhảy cóc cùng lúc (auto_increment bị đẩy lên) thì bỏ qua phần cũ nhất
+    private static final int MAX_TRACKED_GAPS = 10_000;
+    private static final int PURGE_CHUNK_SIZE = 1000;
+
+    private final UserChangeOutbox outbox;
+    private final UserChangeEventRepository eventRepository;
+    private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final UserSearchIndex searchIndex;
+    private final TokenRevocationList revocationList;
+    private final TransactionTemplate primaryReads;
+    private final int batchSize;
+    private final long gapTimeoutMillis;
+    private final long retentionMillis;
+
+    private final Timer lag;
+    private final Counter applied;
+    private final Counter expiredGaps;
+
+    // Chỉ scheduler truy cập; gauge đọc qua các trường volatile
+    private long highestSeen = -1;
+    private final TreeMap<Long, Long> missingSince = new TreeMap<>();
+    private volatile int gapCount;
+    private volatile long lastPollMillis = System.currentTimeMillis();
+    private boolean healthy = true;
+
+    public UserChangeTailer(UserChangeOutbox outbox,
+                            UserChangeEventRepository eventRepository,
+                            UserRepository userRepository,
+                            UserCache userCache,
+                            UserSearchIndex searchIndex,
+                            TokenRevocationList revocationList,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.user-outbox.batch-size:500}") int batchSize,
+                            @Value("${app.user-outbox.gap-timeout:10s}") Duration gapTimeout,
+                            @Value("${app.user-outbox.retention:1d}") Duration retention) {
+        this.outbox = outbox;
+        this.eventRepository = eventRepository;
+        this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.searchIndex = searchIndex;
+        this.revocationList = revocationList;
+        this.primaryReads = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+        this.gapTimeoutMillis = gapTimeout.toMillis();
+        this.retentionMillis = retention.toMillis();
+        this.lag = Timer.builder("user.outbox.lag")
+                .description("Delay between a user change on another node and its invalidation here")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.applied = eventCounter(meterRegistry, "applied");
+        this.expiredGaps = eventCounter(meterRegistry, "gap-expired");
+        Gauge.builder("user.outbox.poll.age", this, tailer -> (System.currentTimeMillis() - tailer.lastPollMillis) / 1000.0)
+                .description("Time since the outbox was last read successfully")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("user.outbox.gaps", this, tailer -> tailer.gapCount)
+                .description("Outbox ids skipped over and still awaited")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.user-outbox.poll-interval:200ms}")
+    public void poll() {
+        if (!outbox.isEnabled()) {
+            return;
+        }
+        try {
+            if (highestSeen < 0) {
+                highestSeen = eventRepository.findMaxId();
+            } else {
+                recheckGaps();
+                List<UserChangeEvent> batch;
+                do {
+                    batch = eventRepository.findByIdGreaterThanOrderByIdAsc(highestSeen, Limit.of(batchSize));
+                    apply(batch);
+                    batch.forEach(event -> trackGaps(event.getId()));
+                } while (batch.size() == batchSize);
+            }
+            lastPollMillis = System.currentTimeMillis();
+            if (!healthy) {
+                log.info("User change outbox readable again, tailing from id {}", highestSeen);
+                healthy = true;
+            }
+        } catch (DataAccessException | TransactionException e) {
+            if (healthy) {
+                log.warn("Cannot read user change outbox, cached users may be stale: {}", e.getMessage());
+                healthy = false;
+            }
+        }
+    }
+
+    // Event của một transaction commit muộn (id thấp hơn id đã đọc) được tìm lại theo id
+    private void recheckGaps() {
+        if (missingSince.isEmpty()) {
+            return;
+        }
+        List<UserChangeEvent> late = eventRepository.findAllById(missingSince.keySet());
+        apply(late);
+        late.forEach(event -> missingSince.remove(event.getId()));
+        long expiredBefore = System.currentTimeMillis() - gapTimeoutMillis;
+        missingSince.values().removeIf(since -> {
+            boolean expired = since < expiredBefore;
+            if (expired) {
+                expiredGaps.increment();
+            }
+            return expired;
+        });
+        gapCount = missingSince.size();
+    }
+
+    private void trackGaps(long id) {
+        long now = System.currentTimeMillis();
+        long from = Math.max(highestSeen + 1, id - MAX_TRACKED_GAPS);
+        if (from > highestSeen + 1) {
+            expiredGaps.increment(from - highestSeen - 1);
+        }
+        for (long missing = from; missing < id; missing++) {
+            missingSince.put(missing, now);
+        }
+        while (missingSince.size() > MAX_TRACKED_GAPS) {
+            missingSince.pollFirstEntry();
+            expiredGaps.increment();
+        }
+        highestSeen = Math.max(highestSeen, id);
+        gapCount = missingSince.size();
+    }
+
+    private void apply(List<UserChangeEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Set<Long> evictedIds = new HashSet<>();
+        Set<Long> reindexIds = new HashSet<>();
+        Set<String> reindexUsernames = new HashSet<>();
+        Set<Long> tokenIds = new HashSet<>();
+        boolean invalidateAll = false;
+        boolean refreshTokens = false;
+        for (UserChangeEvent event : events) {
+            if (outbox.getNodeId().equals(event.getOrigin())) {
+                continue;
+            }
+            if (event.getUserId() == null && event.getUsername() == null) {
+                invalidateAll = true;
+            } else if (event.getUsername() == null) {
+                evictedIds.add(event.getUserId());
+            } else {
+                userCache.evict(event.getUserId(), event.getUsername(), event.getPreviousUsername());
+            }
+            switch (event.getType()) {
+                case REGISTERED, UPDATED, IMPORTED -> {
+                    if (event.getUserId() != null) {
+                        reindexIds.add(event.getUserId());
+                    } else if (event.getUsername() != null) {
+                        reindexUsernames.add(event.getUsername());
+                    }
+                }
+                default -> {
+                }
+            }
+            switch (event.getType()) {
+                case UPDATED, DEACTIVATED, BULK -> {
+                    if (event.getUserId() != null) {
+                        tokenIds.add(event.getUserId());
+                    } else {
+                        refreshTokens = true;
+                    }
+                }
+                default -> {
+                }
+            }
+            lag.record(Math.max(0, now - event.getCreatedMillis()), TimeUnit.MILLISECONDS);
+            applied.increment();
+        }
+        if (invalidateAll) {
+            userCache.invalidateAll();
+        } else if (!evictedIds.isEmpty()) {
+            userCache.evictIds(evictedIds);
+        }
+        if (!reindexIds.isEmpty() || !reindexUsernames.isEmpty() || !tokenIds.isEmpty()) {
+            Set<Long> ids = new HashSet<>(reindexIds);
+            ids.addAll(tokenIds);
+            // Event cùng transaction với dòng users nên khi đọc được event thì đọc được token_version đã commit
+            List<List<User>> loaded = primaryReads.execute(status -> List.of(
+                    userRepository.findAllById(ids),
+                    reindexUsernames.isEmpty() ? List.<User>of() : userRepository.findByUsernameIn(reindexUsernames)));
+            for (User user : loaded.get(0)) {
+                if (reindexIds.contains(user.getId())) {
+                    searchIndex.index(user);
+                }
+                if (tokenIds.contains(user.getId())) {
+                    revocationList.record(user);
+                }
+            }
+            loaded.get(1).forEach(searchIndex::index);
+        }
+        if (refreshTokens) {
+            revocationList.refresh();
+        }
+    }
+
+    // Mọi node đều dọn, xóa theo id nên chạy đồng thời cũng không sao
+    @Scheduled(fixedDelayString = "${app.user-outbox.purge-interval:10m}")
+    public void purge() {
+        if (!outbox.isEnabled()) {
+            return;
+        }
+        long before = System.currentTimeMillis() - retentionMillis;
+        try {
+            List<Long> ids;
+            do {
+                ids = eventRepository.findIdsCreatedBefore(before, Limit.of(PURGE_CHUNK_SIZE));
+                if (!ids.isEmpty()) {
+                    eventRepository.deleteAllByIdInBatch(ids);
+                }
+            } while (ids.size() == PURGE_CHUNK_SIZE);
+        } catch (DataAccessException | TransactionException e) {
+            log.debug("Cannot purge user change outbox: {}", e.getMessage());
+        }
+    }
+
+    private static Counter eventCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("user.outbox.events")
+                .description("User change events read from the outbox")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
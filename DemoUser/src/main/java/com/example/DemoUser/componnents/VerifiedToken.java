@@ -0,0 +1,22 @@
+package com.example.DemoUser.componnents;
+
+import java.util.Date;
+
+/**
+ * Claims of a JWT whose signature has already been verified. {@code role}, {@code active}
+ * and {@code tokenVersion} are {@code null} for tokens issued before they were signed in.
+ */
+public record VerifiedToken(String subject, Long userId, Date expiration,
+                            String role, Boolean active, Integer tokenVersion) {
+
+    public boolean isExpired() {
+        return expiration.before(new Date());
+    }
+
+    /**
+     * Whether the token carries everything needed to authenticate without loading the user.
+     */
+    public boolean isSelfContained() {
+        return userId != null && role != null && active != null && tokenVersion != null;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.DemoUser.dtos;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Chọn user theo danh sách ids hoặc theo filter (chỉ một trong hai)
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkUserUpdateDTO {
+    public static final String DEACTIVATE = "deactivate";
+    public static final String ACTIVATE = "activate";
+    public static final String SET_ROLE = "set_role";
+
+    @NotBlank(message = "Action cannot be blank")
+    @Pattern(regexp = DEACTIVATE + "|" + ACTIVATE + "|" + SET_ROLE, message = "Action must be deactivate, activate or set_role")
+    private String action;
+
+    // Role mới, bắt buộc với set_role
+    @Size(max = 10, message = "Role must be at most 10 characters")
+    private String role;
+
+    private List<Long> ids;
+
+    @Valid
+    private Filter filter;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Filter {
+        private String role;
+
+        // Chỉ áp dụng cho set_role; activate/deactivate luôn chỉ đụng các user chưa ở trạng thái đích
+        private Boolean active;
+
+        @JsonProperty("createdBefore")
+        private LocalDateTime createdBefore;
+
+        public boolean isEmpty() {
+            return role == null && active == null && createdBefore == null;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.DemoUser.dtos;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Một dòng của file import (CSV hoặc NDJSON); password có thể là mật khẩu thô hoặc hash bcrypt/pbkdf2
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class UserImportDTO {
+    private String username;
+
+    private String password;
+
+    private String email;
+
+    private String phone;
+
+    @JsonProperty("dateOfBirth")
+    @JsonAlias("date_of_birth")
+    private LocalDate dateOfBirth;
+
+    private String role;
+
+    @JsonAlias("is_active")
+    private Boolean active;
+}
@@ -0,0 +1,40 @@
+package com.example.DemoUser.dtos;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// PATCH: trường null nghĩa là giữ nguyên giá trị hiện tại
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserPatchDTO {
+    @Size(min = 1, max = 50, message = "Username must be between 1 and 50 characters")
+    private String username;
+
+    // Mật khẩu thô, được băm trước khi lưu
+    @Size(min = 1, max = 100, message = "Password must be between 1 and 100 characters")
+    private String password;
+
+    @Email(message = "Email is not valid")
+    @Size(max = 100, message = "Email must be at most 100 characters")
+    private String email;
+
+    @Size(min = 1, max = 20, message = "Phone must be between 1 and 20 characters")
+    private String phone;
+
+    @JsonProperty("dateOfBirth")
+    private LocalDate dateOfBirth;
+
+    private Boolean active;
+
+    // Version client đã đọc; nếu khác version hiện tại thì trả 409 thay vì ghi đè
+    private Long version;
+}
@@ -1,16 +1,24 @@
 package com.example.DemoUser.exceptions;
 
 import com.example.DemoUser.responses.ResponseObject;
+import jakarta.servlet.ServletException;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.servlet.NoHandlerFoundException;
+import org.springframework.web.servlet.resource.NoResourceFoundException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -20,6 +28,7 @@ import java.util.regex.Pattern;
 
 @ControllerAdvice
 public class GlobalExceptionHandler {
+    private static final Pattern MYSQL_DUPLICATE_ENTRY = Pattern.compile("Duplicate entry '(.*?)' for key '(.*?)'");
 
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -40,6 +49,68 @@ public class GlobalExceptionHandler {
                 .message(exception.getMessage())
                 .build());
     }
+
+    // Đường dẫn không có handler, ví dụ /actuator/** trên cổng API (actuator chỉ có trên management.server.port)
+    @ExceptionHandler({NoHandlerFoundException.class, NoResourceFoundException.class})
+    public ResponseEntity<ResponseObject> handleNoHandlerFoundException(ServletException exception) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ResponseObject.builder()
+                .status(HttpStatus.NOT_FOUND)
+                .message(exception.getMessage())
+                .build());
+    }
+
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<ResponseObject> handleServiceBusyException(ServiceBusyException exception) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ResponseObject.builder()
+                        .status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .message(exception.getMessage())
+                        .build());
+    }
+
+    // Pool async của GET /users/stream đầy. Response đã mang Content-Type x-ndjson của export nên phải đặt lại JSON
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<ResponseObject> handleTaskRejectedException(TaskRejectedException exception) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(ResponseObject.builder()
+                        .status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .message("Too many concurrent exports, please retry later")
+                        .build());
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ResponseObject> handleTooManyRequestsException(TooManyRequestsException exception) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(ResponseObject.builder()
+                        .status(HttpStatus.TOO_MANY_REQUESTS)
+                        .message(exception.getMessage())
+                        .build());
+    }
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<ResponseObject> handleMaxUploadSizeExceededException(MaxUploadSizeExceededException exception) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(ResponseObject.builder()
+                .status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .message("File quá lớn, kích thước tối đa " + exception.getMaxUploadSize() + " bytes")
+                .build());
+    }
+    @ExceptionHandler(UnsupportedAvatarException.class)
+    public ResponseEntity<ResponseObject> handleUnsupportedAvatarException(UnsupportedAvatarException exception) {
+        return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body(ResponseObject.builder()
+                .status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+                .message(exception.getMessage())
+                .build());
+    }
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<ResponseObject> handleOptimisticLockingFailureException(ObjectOptimisticLockingFailureException exception) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ResponseObject.builder()
+                .status(HttpStatus.CONFLICT)
+                .message("User đã bị thay đổi bởi một request khác, hãy tải lại và thử lại")
+                .build());
+    }
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ResponseObject> handleMethodArgumentNotValidException(
             MethodArgumentNotValidException ex) {
@@ -115,13 +186,27 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(DataIntegrityViolationException.class)
     public ResponseEntity<ResponseObject> handleDataIntegrityViolationException(DataIntegrityViolationException ex) {
+        String userFriendlyMessage = describeDataIntegrityViolation(ex);
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                ResponseObject.builder()
+                        .message(userFriendlyMessage)
+                        .status(HttpStatus.BAD_REQUEST)
+                        .data(null)
+                        .build());
+    }
+
+    /**
+     * Turns a constraint violation into a message for the client, e.g. the duplicate
+     * username/email/phone. Also used to report per-row failures of the bulk import.
+     */
+    public static String describeDataIntegrityViolation(DataIntegrityViolationException ex) {
         String rootCauseMessage = ex.getRootCause() != null ? ex.getRootCause().getMessage() : ex.getMessage();
         String userFriendlyMessage = "An unexpected database error occurred."; // Thông báo mặc định
 
         // --- Xử lý lỗi UNIQUE CONSTRAINT (MySQL/MariaDB) ---
         // Ví dụ: Duplicate entry 'tien le1' for key 'users.username'
-        Pattern mysqlPattern = Pattern.compile("Duplicate entry '(.*?)' for key '(.*?)'");
-        Matcher mysqlMatcher = mysqlPattern.matcher(rootCauseMessage);
+        Matcher mysqlMatcher = MYSQL_DUPLICATE_ENTRY.matcher(rootCauseMessage);
 
         if (mysqlMatcher.find()) {
             String duplicateValue = mysqlMatcher.group(1);
@@ -164,11 +249,6 @@ public class GlobalExceptionHandler {
         // Dựa vào `rootCauseMessage` để phân tích và trả về thông báo phù hợp.
         // Ví dụ: nếu muốn xử lý lỗi NOT NULL, bạn có thể tìm chuỗi "violates not-null constraint"
 
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
-                ResponseObject.builder()
-                        .message(userFriendlyMessage)
-                        .status(HttpStatus.BAD_REQUEST)
-                        .data(null)
-                        .build());
+        return userFriendlyMessage;
     }
 }
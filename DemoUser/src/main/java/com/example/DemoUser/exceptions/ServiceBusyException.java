@@ -0,0 +1,12 @@
+package com.example.DemoUser.exceptions;
+
+/**
+ * Thrown when a bounded worker pool cannot accept more work; mapped to 503 by
+ * {@link GlobalExceptionHandler}. Unchecked so it can cross lambdas and
+ * framework callbacks.
+ */
+public class ServiceBusyException extends RuntimeException {
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.DemoUser.exceptions;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a caller has used up its rate-limit bucket; mapped to 429 with a
+ * {@code Retry-After} header by {@link GlobalExceptionHandler}.
+ */
+@Getter
+public class TooManyRequestsException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        // Không cần stack trace: bị ném cho mọi request bị từ chối trong một đợt tấn công
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
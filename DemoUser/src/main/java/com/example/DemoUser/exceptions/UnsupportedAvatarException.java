@@ -0,0 +1,11 @@
+package com.example.DemoUser.exceptions;
+
+/**
+ * Thrown when an uploaded avatar is not a PNG, JPEG, GIF or WebP image; mapped to 415
+ * by {@link GlobalExceptionHandler}.
+ */
+public class UnsupportedAvatarException extends RuntimeException {
+    public UnsupportedAvatarException(String message) {
+        super(message);
+    }
+}
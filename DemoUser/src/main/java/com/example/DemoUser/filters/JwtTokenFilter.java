@@ -1,8 +1,13 @@
 package com.example.DemoUser.filters;
 
 import com.example.DemoUser.componnents.JwtTokenUtils;
+import com.example.DemoUser.componnents.LatencyMetrics;
+import com.example.DemoUser.componnents.TokenRevocationList;
+import com.example.DemoUser.componnents.VerifiedToken;
 
 import com.example.DemoUser.models.User;
+import com.example.DemoUser.responses.ResponseObject;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -10,7 +15,9 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.util.Pair;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -19,71 +26,90 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 public class JwtTokenFilter extends OncePerRequestFilter {
-    @Value("${api.prefix}")
-    private String apiPrefix;
+    @Value("${jwt.stateless:false}")
+    private boolean statelessAuthentication;
     private final UserDetailsService userDetailsService;
     private final JwtTokenUtils jwtTokenUtil;
+    private final TokenRevocationList revocationList;
+    private final LatencyMetrics latencyMetrics;
+    private final PublicRoutes publicRoutes;
+    private final ObjectMapper objectMapper;
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
                                     @NonNull HttpServletResponse response,
                                     @NonNull FilterChain filterChain)
             throws ServletException, IOException {
+        if(publicRoutes.matches(request)) {
+            filterChain.doFilter(request, response); //enable bypass
+            return;
+        }
+        // Chỉ đo phần xác thực; lỗi của filterChain phía sau không bị tính là token bị từ chối
+        long startedAt = System.nanoTime();
+        boolean authenticated = authenticate(request);
+        latencyMetrics.record("jwt.filter", authenticated ? "authenticate" : "rejected", "auth", System.nanoTime() - startedAt);
+        if (!authenticated) {
+            // Ghi thẳng response: sendError sẽ dispatch tới /error và bị security chain trả 403
+            response.setStatus(HttpStatus.UNAUTHORIZED.value());
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), ResponseObject.builder()
+                    .status(HttpStatus.UNAUTHORIZED)
+                    .message("Unauthorized")
+                    .build());
+            return;
+        }
+        filterChain.doFilter(request, response); //enable bypass
+    }
+    // false khi thiếu header, token không hợp lệ/đã bị thu hồi hoặc user không còn hoạt động
+    private boolean authenticate(HttpServletRequest request) {
+        final String authHeader = request.getHeader("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return false;
+        }
         try {
-            if(isBypassToken(request)) {
-                filterChain.doFilter(request, response); //enable bypass
-                return;
+            final String token = authHeader.substring(7);
+            final VerifiedToken verifiedToken = jwtTokenUtil.verifyToken(token);
+            final String code = verifiedToken.subject();
+            if (code == null) {
+                return false;
             }
-            final String authHeader = request.getHeader("Authorization");
-            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Unauthorized");
-                return;
+            if (SecurityContextHolder.getContext().getAuthentication() != null) {
+                return true;
             }
-            final String token = authHeader.substring(7);
-            final String code = jwtTokenUtil.extractCode(token);
-            if (code != null
-                    && SecurityContextHolder.getContext().getAuthentication() == null) {
-                User userDetails = (User) userDetailsService.loadUserByUsername(code);
-                if(jwtTokenUtil.validateToken(token, userDetails)) {
-                    UsernamePasswordAuthenticationToken authenticationToken =
-                            new UsernamePasswordAuthenticationToken(
-                                    userDetails,
-                                    null,
-                                    userDetails.getAuthorities()
-                            );
-                    authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authenticationToken);
-                }
+            User userDetails = statelessAuthentication && verifiedToken.isSelfContained()
+                    ? principalFromClaims(verifiedToken)
+                    : (User) userDetailsService.loadUserByUsername(code);
+            if (userDetails == null || !jwtTokenUtil.validateToken(verifiedToken, userDetails)) {
+                return false;
             }
-            filterChain.doFilter(request, response); //enable bypass
-        }catch (Exception e) {
-            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Unauthorized");
+            UsernamePasswordAuthenticationToken authenticationToken =
+                    new UsernamePasswordAuthenticationToken(
+                            userDetails,
+                            null,
+                            userDetails.getAuthorities()
+                    );
+            authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+            return true;
+        } catch (Exception e) {
+            return false;
         }
-
     }
-    private boolean isBypassToken(@NonNull HttpServletRequest request) {
-        final List<Pair<String, String>> bypassTokens = Arrays.asList(
-                Pair.of(String.format("%s/users", apiPrefix), "GET"),
-                Pair.of(String.format("%s/users/login", apiPrefix), "POST"),
-                Pair.of(String.format("%s/users/register", apiPrefix), "POST"),
-                Pair.of(String.format("%s/users/**", apiPrefix), "GET")
-        );
-
-        String requestPath = request.getServletPath();
-        String requestMethod = request.getMethod();
-
-        for (Pair<String, String> bypassToken : bypassTokens) {
-            if (requestPath.contains(bypassToken.getFirst())
-                    && requestMethod.equals(bypassToken.getSecond())) {
-                return true;
-            }
+    // Dựng principal từ claims đã ký; trả về null nếu token đã bị thu hồi hoặc user bị khóa
+    private User principalFromClaims(VerifiedToken token) {
+        if (!token.active() || revocationList.isRevoked(token.userId(), token.tokenVersion())) {
+            return null;
         }
-
-        return false;
+        return User.builder()
+                .id(token.userId())
+                .username(token.subject())
+                .role(token.role())
+                .active(true)
+                .tokenVersion(token.tokenVersion())
+                .build();
     }
 }
@@ -0,0 +1,36 @@
+package com.example.DemoUser.filters;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Component;
+
+/**
+ * The routes that need no JWT, declared once. {@link JwtTokenFilter} lets them through
+ * without a token and {@code WebSecurityConfig} permits them; every other route
+ * requires authentication and is further restricted by {@code @PreAuthorize}.
+ * <p>
+ * Actuator is not listed: it is served only on {@code management.server.port}, which is
+ * not published outside the internal network.
+ */
+@Slf4j
+@Component
+public class PublicRoutes implements RequestMatcher {
+    private final RouteTable routeTable;
+
+    public PublicRoutes(@Value("${api.prefix}") String apiPrefix) {
+        this.routeTable = RouteTable.builder()
+                .route("GET", apiPrefix + "/users")
+                .route("GET", apiPrefix + "/users/avatars/*")
+                .route("POST", apiPrefix + "/users/login")
+                .route("POST", apiPrefix + "/users/register")
+                .build();
+        log.info("Public routes: {}", routeTable.routes());
+    }
+
+    @Override
+    public boolean matches(HttpServletRequest request) {
+        return routeTable.matches(request.getMethod(), request.getServletPath());
+    }
+}
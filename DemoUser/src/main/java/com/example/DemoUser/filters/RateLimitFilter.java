@@ -0,0 +1,70 @@
+package com.example.DemoUser.filters;
+
+import com.example.DemoUser.componnents.AuthRateLimiter;
+import com.example.DemoUser.exceptions.TooManyRequestsException;
+import com.example.DemoUser.responses.ResponseObject;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Per-client-IP limit on login and register, applied before the body (JSON or multipart
+ * avatar) is read. The per-username limit needs the body and is checked in
+ * {@code UserController}. Behind a reverse proxy set
+ * {@code server.forward-headers-strategy=native} so the remote address is the client's.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class RateLimitFilter extends OncePerRequestFilter {
+    private final AuthRateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+    private final RouteTable limitedRoutes;
+
+    public RateLimitFilter(AuthRateLimiter rateLimiter, ObjectMapper objectMapper, @Value("${api.prefix}") String apiPrefix) {
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+        this.limitedRoutes = RouteTable.builder()
+                .route("POST", apiPrefix + "/users/login")
+                .route("POST", apiPrefix + "/users/register")
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !rateLimiter.isEnabled() || !limitedRoutes.matches(request.getMethod(), request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            rateLimiter.checkClient(request.getRemoteAddr());
+        } catch (TooManyRequestsException e) {
+            // Ghi thẳng response: sendError sẽ dispatch tới /error và bị security chain trả 403
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), ResponseObject.builder()
+                    .status(HttpStatus.TOO_MANY_REQUESTS)
+                    .message(e.getMessage())
+                    .build());
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.DemoUser.filters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Method + path patterns compiled into a segment trie.
+ * <p>
+ * Patterns are split on {@code /}; a {@code *} segment matches exactly one path segment
+ * and a trailing {@code **} matches zero or more. A {@code GET} route also matches
+ * {@code HEAD}. Matching walks the request path once, comparing segments in place, so it
+ * allocates nothing; only {@code *} siblings of a literal segment cause backtracking.
+ * Empty segments (repeated or trailing slashes) are skipped.
+ */
+public final class RouteTable {
+    private static final String[] METHODS = {"GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS", "TRACE"};
+
+    private final Node root;
+    private final List<String> routes;
+
+    private RouteTable(Node root, List<String> routes) {
+        this.root = root;
+        this.routes = routes;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public boolean matches(String method, String path) {
+        int bit = methodBit(method);
+        return bit != 0 && path != null && match(root, path, 0, bit);
+    }
+
+    // "GET /api/v1/users", ... theo thứ tự khai báo, để log/debug
+    public List<String> routes() {
+        return routes;
+    }
+
+    private static boolean match(Node node, String path, int position, int bit) {
+        int length = path.length();
+        while (position < length && path.charAt(position) == '/') {
+            position++;
+        }
+        if ((node.restMethods & bit) != 0) {
+            return true;
+        }
+        if (position == length) {
+            return (node.methods & bit) != 0;
+        }
+        int end = path.indexOf('/', position);
+        if (end < 0) {
+            end = length;
+        }
+        int segmentLength = end - position;
+        for (int i = 0; i < node.keys.length; i++) {
+            String key = node.keys[i];
+            if (key.length() == segmentLength
+                    && path.regionMatches(position, key, 0, segmentLength)
+                    && match(node.children[i], path, end, bit)) {
+                return true;
+            }
+        }
+        return node.anySegment != null && match(node.anySegment, path, end, bit);
+    }
+
+    private static int methodBit(String method) {
+        return switch (method) {
+            case "GET" -> 1;
+            case "HEAD" -> 1 << 1;
+            case "POST" -> 1 << 2;
+            case "PUT" -> 1 << 3;
+            case "PATCH" -> 1 << 4;
+            case "DELETE" -> 1 << 5;
+            case "OPTIONS" -> 1 << 6;
+            case "TRACE" -> 1 << 7;
+            default -> 0;
+        };
+    }
+
+    private static final class Node {
+        private String[] keys = new String[0];
+        private Node[] children = new Node[0];
+        private Node anySegment;
+        private int methods;
+        private int restMethods;
+
+        private Node child(String key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) {
+                    return children[i];
+                }
+            }
+            Node child = new Node();
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            keys[keys.length - 1] = key;
+            children[children.length - 1] = child;
+            return child;
+        }
+    }
+
+    public static final class Builder {
+        private final Node root = new Node();
+        private final List<String> routes = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder route(String method, String pattern) {
+            int bit = methodBit(method);
+            if (bit == 0) {
+                throw new IllegalArgumentException("Unsupported HTTP method: " + method + " (one of " + Arrays.toString(METHODS) + ")");
+            }
+            if ("GET".equals(method)) {
+                bit |= methodBit("HEAD");
+            }
+            String[] segments = Arrays.stream(pattern.split("/")).filter(segment -> !segment.isEmpty()).toArray(String[]::new);
+            Node node = root;
+            for (int i = 0; i < segments.length; i++) {
+                String segment = segments[i];
+                if ("**".equals(segment)) {
+                    if (i != segments.length - 1) {
+                        throw new IllegalArgumentException("'**' is only supported as the last segment: " + pattern);
+                    }
+                    node.restMethods |= bit;
+                    routes.add(method + " " + pattern);
+                    return this;
+                }
+                if ("*".equals(segment)) {
+                    if (node.anySegment == null) {
+                        node.anySegment = new Node();
+                    }
+                    node = node.anySegment;
+                } else {
+                    node = node.child(segment);
+                }
+            }
+            node.methods |= bit;
+            routes.add(method + " " + pattern);
+            return this;
+        }
+
+        public RouteTable build() {
+            return new RouteTable(root, List.copyOf(routes));
+        }
+    }
+}
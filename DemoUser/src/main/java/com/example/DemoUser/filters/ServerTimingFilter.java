@@ -0,0 +1,105 @@
+package com.example.DemoUser.filters;
+
+import com.example.DemoUser.componnents.RequestTimings;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Adds a {@code Server-Timing} header with the request's {@link RequestTimings} breakdown
+ * when {@code app.metrics.server-timing} is on. Runs before the security chain so the
+ * authentication time is included. The header is written just before the body starts,
+ * which is when the service and repository work is done.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ServerTimingFilter extends OncePerRequestFilter {
+    public static final String HEADER = "Server-Timing";
+
+    @Value("${app.metrics.server-timing:false}")
+    private boolean enabled;
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        TimedResponse timedResponse = new TimedResponse(response, RequestTimings.begin());
+        try {
+            filterChain.doFilter(request, timedResponse);
+        } finally {
+            timedResponse.writeHeader();
+            RequestTimings.end();
+        }
+    }
+
+    private static final class TimedResponse extends HttpServletResponseWrapper {
+        private final RequestTimings timings;
+        private boolean headerWritten;
+
+        TimedResponse(HttpServletResponse response, RequestTimings timings) {
+            super(response);
+            this.timings = timings;
+        }
+
+        void writeHeader() {
+            if (!headerWritten && !isCommitted()) {
+                headerWritten = true;
+                setHeader(HEADER, timings.header());
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeader();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeHeader();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.example.DemoUser.models;
 import lombok.*;
 import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -16,6 +17,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "users")
+@DynamicUpdate // UPDATE chỉ gồm các cột thực sự thay đổi
 @Data//toString
 @Getter
 @Setter
@@ -42,6 +44,10 @@ public class User implements UserDetails {
     @Column(length = 100)
     private String avatar;
 
+    // Đường dẫn các ảnh thu nhỏ của avatar (64/128/256 px), cách nhau bởi dấu phẩy; do AvatarThumbnailer ghi
+    @Column(name = "avatar_variants", length = 500)
+    private String avatarVariants;
+
     @Column(name = "date_of_birth")
     private LocalDate dateOfBirth;
 
@@ -51,6 +57,15 @@ public class User implements UserDetails {
     @Column(nullable = false, length = 10)
     private String role;
 
+    // Tăng mỗi khi username, mật khẩu, role hoặc trạng thái thay đổi để thu hồi các token đã cấp
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
+
+    // Optimistic locking: UPDATE kèm "where version = ?", ghi đè đồng thời sẽ bị từ chối với 409
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
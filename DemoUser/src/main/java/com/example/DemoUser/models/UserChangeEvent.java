@@ -0,0 +1,49 @@
+package com.example.DemoUser.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Row of the {@code user_change_events} outbox, written in the same transaction as the
+ * change to {@code users}. Every node tails the table by id to drop its own cached copies
+ * (see {@code UserChangeTailer}).
+ * <p>
+ * {@code userId} and {@code username} are both null when the change may touch any user
+ * (a bulk update by filter).
+ */
+@Entity
+@Table(name = "user_change_events", indexes = @Index(name = "idx_user_change_events_created", columnList = "created_millis"))
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UserChangeEvent {
+    public enum Type {
+        REGISTERED, UPDATED, DEACTIVATED, PASSWORD_REHASHED, BULK, IMPORTED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false, length = 20)
+    private Type type;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(length = 50)
+    private String username;
+
+    @Column(name = "previous_username", length = 50)
+    private String previousUsername;
+
+    // Node đã ghi thay đổi; node đó đã tự xóa cache nên bỏ qua event của chính mình
+    @Column(nullable = false, length = 64)
+    private String origin;
+
+    @Column(name = "created_millis", nullable = false)
+    private long createdMillis;
+}
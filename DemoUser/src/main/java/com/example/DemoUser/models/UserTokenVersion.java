@@ -0,0 +1,9 @@
+package com.example.DemoUser.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of the columns that decide whether tokens issued to a user are still valid.
+ */
+public record UserTokenVersion(Long id, int tokenVersion, LocalDateTime updatedAt) {
+}
@@ -0,0 +1,225 @@
+package com.example.DemoUser.repositories;
+
+import com.example.DemoUser.componnents.BatchLoader;
+import com.example.DemoUser.componnents.ReadWriteRoutingDataSource;
+import com.example.DemoUser.componnents.ReadYourWrites;
+import com.example.DemoUser.models.User;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache in front of {@link UserRepository} lookups by id and by username.
+ * <p>
+ * Concurrent misses for the same key run a single DB load; the other callers wait for
+ * its result. The load runs on the missing caller's thread outside Caffeine's locks: the
+ * cache only holds a pending future for the key, so neither the DB round-trip nor the
+ * {@link BatchLoader} window blocks lookups of other keys (or pins a virtual thread), and
+ * an eviction during the load drops the pending entry instead of waiting for it.
+ * Returned entities are shared and must be treated as read-only: write paths load from
+ * {@link UserRepository} directly and call {@link #evict} after saving.
+ * Hit/miss counters are published as {@code cache.*} meters tagged
+ * {@code cache=users.by-id} and {@code cache=users.by-username}.
+ * <p>
+ * Misses are read from a replica under the same rules as other reads
+ * ({@link ReadWriteRoutingDataSource#isReplicaReadAllowed}), except for users written
+ * within the read-your-writes window and rows the replica does not have yet, which are
+ * read from the primary. The replica may be up to {@code max-replica-lag} behind, so
+ * entries it filled live only {@code app.user-cache.replica-ttl} instead of the full TTL:
+ * a change missed by the load (its eviction came first) is picked up that much later.
+ * <p>
+ * The by-username cache is keyed by the lower-cased name, since lookups (and the unique
+ * index) are case-insensitive under MySQL's collation; other inputs the collation treats
+ * as equal (accents, trailing spaces) may still get their own entry, so evicting a user
+ * by id also drops every by-username entry holding that user.
+ * <p>
+ * Misses by id are coalesced: lookups of different ids that miss within
+ * {@code app.user-cache.batch-window} share one {@code IN} query ({@link BatchLoader}),
+ * and {@link #findAllById} loads all of its misses with a single query.
+ */
+@Component
+public class UserCache {
+    private final UserRepository userRepository;
+    private final TransactionTemplate primaryReads;
+    private final TransactionTemplate replicaReads;
+    private final ReadWriteRoutingDataSource routingDataSource;
+    private final ReadYourWrites readYourWrites;
+    private final AsyncCache<Long, CachedUser> byId;
+    private final AsyncCache<String, CachedUser> byUsername;
+    private final BatchLoader<Long, CachedUser> idLoader;
+
+    public UserCache(UserRepository userRepository,
+                     @Value("${app.user-cache.maximum-size:10000}") long maximumSize,
+                     @Value("${app.user-cache.ttl:60}") long ttlSeconds,
+                     @Value("${app.user-cache.replica-ttl:5s}") Duration replicaTtl,
+                     @Value("${app.user-cache.batch-window:1ms}") Duration batchWindow,
+                     @Value("${app.user-cache.batch-max-size:100}") int batchMaxSize,
+                     MeterRegistry meterRegistry,
+                     PlatformTransactionManager transactionManager,
+                     ObjectProvider<ReadWriteRoutingDataSource> routingDataSource,
+                     ReadYourWrites readYourWrites) {
+        this.userRepository = userRepository;
+        this.primaryReads = new TransactionTemplate(transactionManager);
+        this.replicaReads = new TransactionTemplate(transactionManager);
+        this.replicaReads.setReadOnly(true);
+        // Không cấu hình replica thì không có bean routing, mọi miss đọc từ primary
+        this.routingDataSource = routingDataSource.getIfAvailable();
+        this.readYourWrites = readYourWrites;
+        Expiry<Object, CachedUser> expiry = Expiry.creating((key, cached) ->
+                cached.fromReplica() ? replicaTtl : Duration.ofSeconds(ttlSeconds));
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(expiry)
+                .recordStats()
+                .buildAsync();
+        this.byUsername = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(expiry)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "users.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, byUsername, "users.by-username");
+        this.idLoader = new BatchLoader<>("users.by-id", this::loadAll, batchWindow, batchMaxSize, meterRegistry);
+    }
+
+    public Optional<User> findById(Long id) {
+        return Optional.ofNullable(getOrLoad(byId, id, idLoader::load)).map(CachedUser::user);
+    }
+
+    /**
+     * Users found among {@code ids}, keyed by id. Ids without a row are left out and, as
+     * with {@link #findById}, not cached.
+     */
+    public Map<Long, User> findAllById(Collection<Long> ids) {
+        return join(byId.getAll(ids, (missing, executor) -> CompletableFuture.completedFuture(loadAll(missing))))
+                .values().stream()
+                .collect(Collectors.toMap(cached -> cached.user().getId(), CachedUser::user));
+    }
+
+    private Map<Long, CachedUser> loadAll(Set<? extends Long> ids) {
+        Map<Long, CachedUser> loaded = new HashMap<>();
+        Set<Long> remaining = new HashSet<>(ids);
+        if (isReplicaReadAllowed() && remaining.stream().noneMatch(readYourWrites::isRecentlyWritten)) {
+            for (User user : replicaReads.execute(status -> userRepository.findAllById(remaining))) {
+                loaded.put(user.getId(), new CachedUser(user, true));
+            }
+            remaining.removeAll(loaded.keySet());
+        }
+        // Id replica chưa có (vừa tạo) được đọc lại từ primary trước khi coi là không tồn tại
+        if (!remaining.isEmpty()) {
+            for (User user : primaryReads.execute(status -> userRepository.findAllById(remaining))) {
+                loaded.put(user.getId(), new CachedUser(user, false));
+            }
+        }
+        return loaded;
+    }
+
+    public Optional<User> findByUsername(String username) {
+        return Optional.ofNullable(getOrLoad(byUsername, usernameKey(username), key -> loadByUsername(username)))
+                .map(CachedUser::user);
+    }
+
+    private CachedUser loadByUsername(String username) {
+        if (isReplicaReadAllowed()) {
+            User user = replicaReads.execute(status -> userRepository.findByUsername(username).orElse(null));
+            if (user != null && !readYourWrites.isRecentlyWritten(user.getId())) {
+                return new CachedUser(user, true);
+            }
+        }
+        User user = primaryReads.execute(status -> userRepository.findByUsername(username).orElse(null));
+        return user == null ? null : new CachedUser(user, false);
+    }
+
+    private boolean isReplicaReadAllowed() {
+        return routingDataSource != null && routingDataSource.isReplicaReadAllowed();
+    }
+
+    // Caller đầu tiên miss đặt future rỗng vào cache rồi tự tải; null hoặc lỗi thì Caffeine bỏ entry đó
+    private static <K> CachedUser getOrLoad(AsyncCache<K, CachedUser> cache, K key, Function<K, CachedUser> loader) {
+        CompletableFuture<CachedUser> loading = new CompletableFuture<>();
+        CompletableFuture<CachedUser> user = cache.get(key, (k, executor) -> loading);
+        if (user == loading) {
+            try {
+                loading.complete(loader.apply(key));
+            } catch (RuntimeException | Error e) {
+                loading.completeExceptionally(e);
+                throw e;
+            }
+        }
+        return join(user);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private static String usernameKey(String username) {
+        return username == null ? null : username.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Drops every entry for the user. Pass the username the row had before the write as
+     * well as the new one when a write renames the user.
+     */
+    public void evict(Long id, String... usernames) {
+        for (String username : usernames) {
+            if (username != null) {
+                byUsername.synchronous().invalidate(usernameKey(username));
+            }
+        }
+        if (id != null) {
+            byId.synchronous().invalidate(id);
+            // Entry được nạp bằng cách viết khác của tên (dấu, khoảng trắng cuối) không khớp key ở trên
+            byUsername.synchronous().asMap().values().removeIf(cached -> id.equals(cached.user().getId()));
+        }
+    }
+
+    public void evict(User user) {
+        evict(user.getId(), user.getUsername());
+    }
+
+    /**
+     * Drops the given users when only their ids are known, e.g. after a bulk update. The
+     * by-username entries are found by scanning the cache rather than loading the rows.
+     */
+    public void evictIds(Set<Long> ids) {
+        byId.synchronous().invalidateAll(ids);
+        byUsername.synchronous().asMap().values().removeIf(cached -> ids.contains(cached.user().getId()));
+    }
+
+    public void invalidateAll() {
+        byId.synchronous().invalidateAll();
+        byUsername.synchronous().invalidateAll();
+    }
+
+    // fromReplica: entry sống replica-ttl thay vì ttl
+    private record CachedUser(User user, boolean fromReplica) {
+    }
+}
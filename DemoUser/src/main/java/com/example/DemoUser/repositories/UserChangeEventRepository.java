@@ -0,0 +1,23 @@
+package com.example.DemoUser.repositories;
+
+import com.example.DemoUser.models.UserChangeEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+// Outbox phải đọc từ primary: replica trễ sẽ làm con trỏ nhảy qua các id chưa kịp sao chép
+@Transactional
+public interface UserChangeEventRepository extends JpaRepository<UserChangeEvent, Long> {
+    List<UserChangeEvent> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
+    @Query("select coalesce(max(e.id), 0) from UserChangeEvent e")
+    long findMaxId();
+
+    // Xóa theo từng lô id (deleteAllByIdInBatch) để không khóa cả bảng một lúc
+    @Query("select e.id from UserChangeEvent e where e.createdMillis < :before order by e.id")
+    List<Long> findIdsCreatedBefore(@Param("before") long before, Limit limit);
+}
@@ -1,10 +1,103 @@
 package com.example.DemoUser.repositories;
 
 import com.example.DemoUser.models.User;
+import com.example.DemoUser.models.UserTokenVersion;
+import com.example.DemoUser.responses.UserResponse;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+// Mặc định mọi truy vấn khai báo ở đây chạy trong transaction read-only để có thể đi tới replica
+@Transactional(readOnly = true)
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String userName);
+
+    List<User> findByUsernameIn(Collection<String> usernames);
+
+    // Quyết định xóa file avatar nên phải đọc từ primary, replica trễ có thể chưa thấy user vừa dùng file
+    @Transactional
+    boolean existsByAvatar(String avatar);
+
+    // Keyset pagination: dùng id làm con trỏ thay vì OFFSET để mọi trang đều đi theo index khóa chính
+    @Query("select new com.example.DemoUser.responses.UserResponse(" +
+            "u.id, u.username, u.email, u.phone, u.avatar, u.dateOfBirth, u.active, u.role, u.createdAt, u.updatedAt, u.version) " +
+            "from User u where u.id > :after order by u.id")
+    List<UserResponse> findPageAfter(@Param("after") Long after, Limit limit);
+
+    // Đọc từng lô 1000 dòng qua server-side cursor (useCursorFetch=true trong URL MySQL) thay vì nạp toàn bộ
+    // result set; fetch size dương nên chạy được cả trên H2. Phải được tiêu thụ trong một transaction và đóng lại sau khi dùng.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new com.example.DemoUser.responses.UserResponse(" +
+            "u.id, u.username, u.email, u.phone, u.avatar, u.dateOfBirth, u.active, u.role, u.createdAt, u.updatedAt, u.version) " +
+            "from User u order by u.id")
+    Stream<UserResponse> streamAll();
+
+    // TokenRevocationList gọi trong transaction ghi riêng để đọc từ primary
+    @Query("select new com.example.DemoUser.models.UserTokenVersion(u.id, u.tokenVersion, u.updatedAt) " +
+            "from User u where u.updatedAt >= :since")
+    List<UserTokenVersion> findTokenVersionsChangedSince(@Param("since") LocalDateTime since);
+
+    // Chỉ ghi đè nếu hash chưa bị thay đổi kể từ lúc đọc; không đụng updated_at/token_version
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :newHash where u.id = :id and u.password = :oldHash")
+    int updatePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+
+    @Transactional
+    @Modifying
+    @Query("update User u set u.avatarVariants = :variants where u.avatar = :avatar")
+    int updateAvatarVariants(@Param("avatar") String avatar, @Param("variants") String variants);
+
+    // Cập nhật hàng loạt bằng một câu UPDATE: chỉ đụng các dòng thực sự đổi giá trị, tăng token_version
+    // để thu hồi token đã cấp, tăng version để PATCH đang dở bị 409, và tự set updated_at vì bulk update
+    // không chạy @UpdateTimestamp
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update User u set u.active = :active, u.tokenVersion = u.tokenVersion + 1, u.version = u.version + 1, u.updatedAt = :now " +
+            "where u.id in :ids and u.active <> :active")
+    int updateActiveByIds(@Param("ids") Collection<Long> ids, @Param("active") boolean active,
+                          @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update User u set u.role = :role, u.tokenVersion = u.tokenVersion + 1, u.version = u.version + 1, u.updatedAt = :now " +
+            "where u.id in :ids and u.role <> :role")
+    int updateRoleByIds(@Param("ids") Collection<Long> ids, @Param("role") String role,
+                        @Param("now") LocalDateTime now);
+
+    // Bản theo bộ lọc chạy trên từng khoảng id (fromId, toId] để mỗi transaction chỉ khóa một phần bảng
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update User u set u.active = :active, u.tokenVersion = u.tokenVersion + 1, u.version = u.version + 1, u.updatedAt = :now " +
+            "where u.id > :fromId and u.id <= :toId and u.active <> :active " +
+            "and (:role is null or u.role = :role) and (:createdBefore is null or u.createdAt < :createdBefore)")
+    int updateActiveInRange(@Param("fromId") long fromId, @Param("toId") long toId,
+                            @Param("role") String role, @Param("createdBefore") LocalDateTime createdBefore,
+                            @Param("active") boolean active, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update User u set u.role = :newRole, u.tokenVersion = u.tokenVersion + 1, u.version = u.version + 1, u.updatedAt = :now " +
+            "where u.id > :fromId and u.id <= :toId and u.role <> :newRole " +
+            "and (:role is null or u.role = :role) and (:active is null or u.active = :active) " +
+            "and (:createdBefore is null or u.createdAt < :createdBefore)")
+    int updateRoleInRange(@Param("fromId") long fromId, @Param("toId") long toId,
+                          @Param("role") String role, @Param("active") Boolean active,
+                          @Param("createdBefore") LocalDateTime createdBefore,
+                          @Param("newRole") String newRole, @Param("now") LocalDateTime now);
+
+    @Query("select coalesce(max(u.id), 0) from User u")
+    long findMaxId();
 }
@@ -0,0 +1,453 @@
+package com.example.DemoUser.repositories;
+
+import com.example.DemoUser.exceptions.ServiceBusyException;
+import com.example.DemoUser.models.User;
+import com.example.DemoUser.responses.UserResponse;
+import com.example.DemoUser.responses.UserSearchResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-process search index over {@code username}, {@code email} and {@code phone}.
+ * <p>
+ * Every field value is lower-cased, prefixed with an anchor character and split into
+ * trigrams; each gram maps to a sorted {@code int[]} of user ids. A query of three or more
+ * characters matches as a substring by intersecting the posting lists of its trigrams,
+ * shorter queries match as a prefix through the anchored grams. Candidates are verified
+ * against the stored values and ranked exact &gt; prefix &gt; substring, username before
+ * email before phone.
+ * <p>
+ * The index is loaded with a streaming scan once the application is ready and kept current
+ * by {@link #index} calls from the write paths; searches are rejected with 503 until the
+ * load has finished. Users registered, updated or imported on other nodes are re-indexed
+ * by {@code UserChangeTailer} from the outbox, within one {@code app.user-outbox.poll-interval}.
+ * The estimated heap footprint is published as {@code user.search.index.bytes} and
+ * {@code user.search.index.bytes.per.user}.
+ */
+@Slf4j
+@Component
+public class UserSearchIndex {
+    private static final char ANCHOR = '\u0002';
+    private static final int LOAD_CHUNK_SIZE = 1000;
+    private static final long LOAD_RETRY_DELAY_SECONDS = 30;
+    private static final double SCORE_SCALE = 10_000;
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int maxMatches;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private Doc[] docs = new Doc[1024];
+    private int docCount;
+    // Id được ghi trong lúc đang nạp: bản đọc từ lần quét có thể cũ hơn nên bị bỏ qua
+    private final Set<Integer> writtenWhileLoading = new HashSet<>();
+    private boolean loading;
+    private volatile boolean ready;
+
+    public UserSearchIndex(UserRepository userRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.search.max-matches:10000}") int maxMatches,
+                           MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxMatches = maxMatches;
+        Gauge.builder("user.search.index.users", this, index -> index.size())
+                .register(meterRegistry);
+        Gauge.builder("user.search.index.bytes", this, index -> index.estimatedBytes())
+                .baseUnit("bytes")
+                .description("Estimated heap used by the user search index")
+                .register(meterRegistry);
+        Gauge.builder("user.search.index.bytes.per.user", this, index -> index.estimatedBytesPerUser())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        Thread loader = new Thread(this::loadUntilReady, "user-search-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void loadUntilReady() {
+        while (!ready) {
+            try {
+                load();
+            } catch (DataAccessException | TransactionException e) {
+                log.warn("Cannot load user search index, retrying in {}s: {}", LOAD_RETRY_DELAY_SECONDS, e.getMessage());
+                try {
+                    TimeUnit.SECONDS.sleep(LOAD_RETRY_DELAY_SECONDS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    void load() {
+        long startedAt = System.nanoTime();
+        withWriteLock(() -> {
+            loading = true;
+            writtenWhileLoading.clear();
+        });
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                List<UserResponse> chunk = new ArrayList<>(LOAD_CHUNK_SIZE);
+                try (Stream<UserResponse> users = userRepository.streamAll()) {
+                    users.forEach(user -> {
+                        chunk.add(user);
+                        if (chunk.size() == LOAD_CHUNK_SIZE) {
+                            loadChunk(chunk);
+                            chunk.clear();
+                        }
+                    });
+                }
+                loadChunk(chunk);
+            });
+            withWriteLock(() -> {
+                postings.values().forEach(Postings::trim);
+                ready = true;
+            });
+        } finally {
+            withWriteLock(() -> {
+                loading = false;
+                writtenWhileLoading.clear();
+            });
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        log.info("User search index loaded {} users in {} ms, ~{} bytes (~{} bytes/user)",
+                size(), elapsedMs, estimatedBytes(), Math.round(estimatedBytesPerUser()));
+    }
+
+    // Nạp từng phần dưới write lock để search và các ghi song song không phải chờ cả lần quét
+    private void loadChunk(List<UserResponse> chunk) {
+        withWriteLock(() -> {
+            for (UserResponse user : chunk) {
+                int id = Math.toIntExact(user.id());
+                if (!writtenWhileLoading.contains(id)) {
+                    put(id, user.username(), user.email(), user.phone());
+                }
+            }
+        });
+    }
+
+    public void index(User user) {
+        index(user.getId(), user.getUsername(), user.getEmail(), user.getPhone());
+    }
+
+    public void index(Long id, String username, String email, String phone) {
+        int docId = Math.toIntExact(id);
+        withWriteLock(() -> {
+            if (loading) {
+                writtenWhileLoading.add(docId);
+            }
+            put(docId, username, email, phone);
+        });
+    }
+
+    public UserSearchResponse search(String query, int page, int size) {
+        if (!ready) {
+            throw new ServiceBusyException("User search index is still loading, please retry later");
+        }
+        long startedAt = System.nanoTime();
+        String key = normalize(query);
+        List<UserSearchResponse.Hit> hits = new ArrayList<>(size);
+        Matches matches = new Matches();
+        if (!key.isEmpty()) {
+            lock.readLock().lock();
+            try {
+                collectMatches(key, matches);
+                // long: page * size tràn int với page lớn; trang nằm ngoài kết quả thì trả rỗng, không cần sắp xếp
+                long offset = (long) page * size;
+                long[] ranked = offset < matches.count ? Arrays.copyOf(matches.keys, matches.count) : new long[0];
+                // Khóa sắp xếp được: điểm giảm dần rồi id tăng dần, chỉ tạo Hit cho trang được yêu cầu
+                Arrays.sort(ranked);
+                for (int r = ranked.length - 1 - (int) Math.min(offset, ranked.length); r >= 0 && hits.size() < size; r--) {
+                    int id = Integer.MAX_VALUE - (int) ranked[r];
+                    Doc doc = docs[id];
+                    hits.add(new UserSearchResponse.Hit((long) id, doc.username(), doc.email(), doc.phone(),
+                            (ranked[r] >>> 32) / SCORE_SCALE));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        return UserSearchResponse.builder()
+                .hits(hits)
+                .total(matches.count)
+                .truncated(matches.truncated)
+                .page(page)
+                .size(size)
+                .tookMicros(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedAt))
+                .build();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rough heap estimate assuming compressed oops: documents and their strings, the doc
+     * table, one map entry plus key plus posting array per gram and 4 bytes per posting slot.
+     */
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 16L + 4L * docs.length;
+            for (Doc doc : docs) {
+                if (doc != null) {
+                    bytes += 40 + stringBytes(doc.username()) + stringBytes(doc.email()) + stringBytes(doc.phone());
+                    bytes += extraKeyBytes(doc.username(), doc.usernameKey())
+                            + extraKeyBytes(doc.email(), doc.emailKey())
+                            + extraKeyBytes(doc.phone(), doc.phoneKey());
+                }
+            }
+            bytes += 16L + 4L * postings.size() * 2;
+            for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+                bytes += 32 + stringBytes(entry.getKey()) + 24 + 16 + 4L * entry.getValue().ids.length;
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public double estimatedBytesPerUser() {
+        int users = size();
+        return users == 0 ? 0 : (double) estimatedBytes() / users;
+    }
+
+    private void collectMatches(String key, Matches matches) {
+        boolean prefixOnly = key.length() < 3;
+        Set<String> queryGrams = prefixOnly ? Set.of(ANCHOR + key) : grams(key, false);
+        Postings[] lists = new Postings[queryGrams.size()];
+        int i = 0;
+        for (String gram : queryGrams) {
+            Postings list = postings.get(gram);
+            if (list == null) {
+                return;
+            }
+            lists[i++] = list;
+        }
+        // Duyệt danh sách ngắn nhất; các danh sách còn lại đều đã sắp xếp nên chỉ cần tiến con trỏ về phía trước
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+        Postings smallest = lists[0];
+        int[] cursors = new int[lists.length];
+        for (int p = 0; p < smallest.size; p++) {
+            int id = smallest.ids[p];
+            if (!containsInAll(lists, cursors, id)) {
+                continue;
+            }
+            Doc doc = docs[id];
+            double score = Math.max(score(key, doc.usernameKey(), 2, prefixOnly),
+                    Math.max(score(key, doc.emailKey(), 1, prefixOnly), score(key, doc.phoneKey(), 0, prefixOnly)));
+            if (score > 0) {
+                if (matches.count == maxMatches) {
+                    matches.truncated = true;
+                    return;
+                }
+                matches.add(((long) (score * SCORE_SCALE) << 32) | (Integer.MAX_VALUE - id));
+            }
+        }
+    }
+
+    private static boolean containsInAll(Postings[] lists, int[] cursors, int id) {
+        for (int i = 1; i < lists.length; i++) {
+            int at = lists[i].seek(cursors[i], id);
+            cursors[i] = at;
+            if (at == lists[i].size || lists[i].ids[at] != id) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // exact 100, prefix 60, substring 20; +field bonus; + độ phủ của query trên giá trị (0..1)
+    private static double score(String key, String value, int fieldBonus, boolean prefixOnly) {
+        if (value == null) {
+            return 0;
+        }
+        double base;
+        if (value.equals(key)) {
+            base = 100;
+        } else if (value.startsWith(key)) {
+            base = 60;
+        } else if (!prefixOnly && value.contains(key)) {
+            base = 20;
+        } else {
+            return 0;
+        }
+        return base + fieldBonus + (double) key.length() / value.length();
+    }
+
+    private void put(int id, String username, String email, String phone) {
+        Doc previous = id < docs.length ? docs[id] : null;
+        Doc doc = new Doc(username, email, phone,
+                normalize(username), normalize(email), normalize(phone));
+        Set<String> oldGrams = previous == null ? Set.of() : previous.grams();
+        Set<String> newGrams = doc.grams();
+        for (String gram : oldGrams) {
+            if (!newGrams.contains(gram)) {
+                Postings list = postings.get(gram);
+                if (list != null && list.remove(id) && list.size == 0) {
+                    postings.remove(gram);
+                }
+            }
+        }
+        for (String gram : newGrams) {
+            if (!oldGrams.contains(gram)) {
+                postings.computeIfAbsent(gram, g -> new Postings()).add(id);
+            }
+        }
+        if (id >= docs.length) {
+            docs = Arrays.copyOf(docs, Math.max(id + 1, docs.length * 2));
+        }
+        if (previous == null) {
+            docCount++;
+        }
+        docs[id] = doc;
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static String normalize(String value) {
+        // toLowerCase trả về chính chuỗi cũ nếu không đổi, nên giá trị vốn đã viết thường không tốn thêm bộ nhớ
+        return value == null ? "" : value.strip().toLowerCase(Locale.ROOT);
+    }
+
+    // Gram của một giá trị: 2 ký tự đầu có anchor (cho query 1 ký tự) và mọi trigram của anchor + giá trị
+    private static Set<String> grams(String key, boolean anchored) {
+        Set<String> grams = new HashSet<>();
+        if (key.isEmpty()) {
+            return grams;
+        }
+        String text = anchored ? ANCHOR + key : key;
+        if (anchored) {
+            grams.add(text.substring(0, 2));
+        }
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            grams.add(text.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 24 + ((16 + value.length() + 7) & ~7);
+    }
+
+    private static long extraKeyBytes(String value, String key) {
+        return value == key ? 0 : stringBytes(key);
+    }
+
+    private record Doc(String username, String email, String phone,
+                       String usernameKey, String emailKey, String phoneKey) {
+        Set<String> grams() {
+            Set<String> grams = UserSearchIndex.grams(usernameKey, true);
+            grams.addAll(UserSearchIndex.grams(emailKey, true));
+            grams.addAll(UserSearchIndex.grams(phoneKey, true));
+            return grams;
+        }
+    }
+
+    /** Matches of one query, each packed as (score << 32 | MAX_VALUE - id) so a plain sort ranks them. */
+    private static final class Matches {
+        private long[] keys = new long[64];
+        private int count;
+        private boolean truncated;
+
+        void add(long key) {
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+            }
+            keys[count++] = key;
+        }
+    }
+
+    /** Sorted, duplicate-free id list; ids of new users are appended at the end. */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int at = Arrays.binarySearch(ids, 0, size, id);
+                if (at >= 0) {
+                    return;
+                }
+                insertAt(-at - 1, id);
+                return;
+            }
+            insertAt(size, id);
+        }
+
+        private void insertAt(int at, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        void trim() {
+            ids = Arrays.copyOf(ids, size);
+        }
+
+        // Vị trí đầu tiên từ "from" có giá trị >= id: nhảy lũy thừa 2 rồi binary search trong đoạn cuối
+        int seek(int from, int id) {
+            int bound = 1;
+            while (from + bound < size && ids[from + bound] < id) {
+                bound <<= 1;
+            }
+            int at = Arrays.binarySearch(ids, from + (bound >> 1), Math.min(from + bound + 1, size), id);
+            return at >= 0 ? at : -at - 1;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.DemoUser.responses;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkUpdateResponse {
+    @JsonProperty("action")
+    private String action;
+
+    // Số dòng thực sự thay đổi; user đã ở trạng thái/role đích không được tính
+    @JsonProperty("affected")
+    private long affected;
+
+    // Số câu UPDATE đã chạy, mỗi câu trong một transaction riêng
+    @JsonProperty("statements")
+    private int statements;
+
+    @JsonProperty("elapsedMs")
+    private long elapsedMs;
+}
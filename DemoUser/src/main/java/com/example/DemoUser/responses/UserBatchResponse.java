@@ -0,0 +1,21 @@
+package com.example.DemoUser.responses;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UserBatchResponse {
+    // Theo thứ tự ids trong request, id trùng chỉ xuất hiện một lần
+    @JsonProperty("users")
+    private List<UserResponse> users;
+
+    // Các id không có user tương ứng
+    @JsonProperty("missing")
+    private List<Long> missing;
+}
@@ -0,0 +1,40 @@
+package com.example.DemoUser.responses;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UserImportResponse {
+    @JsonProperty("total")
+    private long total;
+
+    @JsonProperty("inserted")
+    private long inserted;
+
+    @JsonProperty("failed")
+    private long failed;
+
+    // Chỉ giữ tối đa MAX_REPORTED_FAILURES lỗi đầu tiên, "failed" vẫn đếm đủ
+    @JsonProperty("failures")
+    private List<Failure> failures;
+
+    @JsonProperty("elapsedMs")
+    private long elapsedMs;
+
+    @JsonProperty("rowsPerSecond")
+    private double rowsPerSecond;
+
+    // line là số dòng trong body (tính cả dòng header của CSV), bắt đầu từ 1
+    public record Failure(
+            @JsonProperty("line") long line,
+            @JsonProperty("username") String username,
+            @JsonProperty("reason") String reason
+    ) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.DemoUser.responses;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UserPageResponse {
+    @JsonProperty("users")
+    private List<UserResponse> users;
+
+    // id của bản ghi cuối cùng, truyền lại vào tham số "after" để lấy trang tiếp theo
+    @JsonProperty("nextCursor")
+    private Long nextCursor;
+
+    @JsonProperty("hasMore")
+    private boolean hasMore;
+}
@@ -0,0 +1,34 @@
+package com.example.DemoUser.responses;
+
+import com.example.DemoUser.models.User;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only view of a user, populated directly by JPQL constructor expressions
+ * so that no {@link User} entity (and no password hash) is hydrated into the
+ * persistence context. Every endpoint returns this instead of the entity;
+ * {@code version} is the value PATCH expects for optimistic locking.
+ */
+public record UserResponse(
+        @JsonProperty("id") Long id,
+        @JsonProperty("username") String username,
+        @JsonProperty("email") String email,
+        @JsonProperty("phone") String phone,
+        @JsonProperty("avatar") String avatar,
+        @JsonProperty("dateOfBirth") LocalDate dateOfBirth,
+        @JsonProperty("active") boolean active,
+        @JsonProperty("role") String role,
+        @JsonProperty("createdAt") LocalDateTime createdAt,
+        @JsonProperty("updatedAt") LocalDateTime updatedAt,
+        @JsonProperty("version") Long version
+) {
+    // Cho entity đã có sẵn (cache, kết quả save), không cần truy vấn lại
+    public static UserResponse from(User user) {
+        return new UserResponse(user.getId(), user.getUsername(), user.getEmail(), user.getPhone(), user.getAvatar(),
+                user.getDateOfBirth(), user.isActive(), user.getRole(), user.getCreatedAt(), user.getUpdatedAt(),
+                user.getVersion());
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.DemoUser.responses;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UserSearchResponse {
+    @JsonProperty("hits")
+    private List<Hit> hits;
+
+    @JsonProperty("total")
+    private int total;
+
+    // true nếu số kết quả vượt app.search.max-matches; chỉ các kết quả đầu tiên được xếp hạng
+    @JsonProperty("truncated")
+    private boolean truncated;
+
+    @JsonProperty("page")
+    private int page;
+
+    @JsonProperty("size")
+    private int size;
+
+    @JsonProperty("tookMicros")
+    private long tookMicros;
+
+    public record Hit(
+            @JsonProperty("id") Long id,
+            @JsonProperty("username") String username,
+            @JsonProperty("email") String email,
+            @JsonProperty("phone") String phone,
+            @JsonProperty("score") double score
+    ) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.DemoUser.services;
+
+import com.example.DemoUser.exceptions.InvalidParamException;
+import com.example.DemoUser.responses.UserImportResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface IUserImportService {
+    UserImportResponse importCsv(InputStream body) throws IOException, InvalidParamException;
+    UserImportResponse importNdjson(InputStream body) throws IOException;
+}
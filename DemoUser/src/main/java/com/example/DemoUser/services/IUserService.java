@@ -1,18 +1,32 @@
 package com.example.DemoUser.services;
 
+import com.example.DemoUser.dtos.BulkUserUpdateDTO;
+import com.example.DemoUser.dtos.UserPatchDTO;
 import com.example.DemoUser.exceptions.DataNotFoundException;
+import com.example.DemoUser.exceptions.InvalidParamException;
 import com.example.DemoUser.models.User;
+import com.example.DemoUser.responses.BulkUpdateResponse;
+import com.example.DemoUser.responses.UserBatchResponse;
+import com.example.DemoUser.responses.UserPageResponse;
+import com.example.DemoUser.responses.UserResponse;
+import com.example.DemoUser.responses.UserSearchResponse;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.Collection;
+import java.util.function.Consumer;
 
 public interface IUserService {
-    List<User> getAllUsers();
+    UserPageResponse getUsersPage(Long after, int limit);
+    void streamAllUsers(Consumer<UserResponse> consumer);
+    UserSearchResponse searchUsers(String query, int page, int size);
     User getUserById(Long id) throws Exception;
+    UserBatchResponse getUsersByIds(Collection<Long> ids);
     String login(String phoneNumber, String password, String roleId) throws Exception;
     User getUserDetailsFromToken(String token) throws Exception;
     User updateUser(Long id, User user, MultipartFile avatarFile) throws Exception;
+    User patchUser(Long id, UserPatchDTO patch) throws DataNotFoundException;
     User saveUserWithAvatar(User user, MultipartFile thumbnailFile) throws IOException;
     void deleteUser(Long id) throws DataNotFoundException;
+    BulkUpdateResponse bulkUpdate(BulkUserUpdateDTO request) throws InvalidParamException;
 }
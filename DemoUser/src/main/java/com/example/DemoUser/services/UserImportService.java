@@ -0,0 +1,425 @@
+package com.example.DemoUser.services;
+
+import com.example.DemoUser.componnents.PasswordHasher;
+import com.example.DemoUser.componnents.UserChangeOutbox;
+import com.example.DemoUser.dtos.UserImportDTO;
+import com.example.DemoUser.exceptions.GlobalExceptionHandler;
+import com.example.DemoUser.exceptions.InvalidParamException;
+import com.example.DemoUser.models.UserChangeEvent;
+import com.example.DemoUser.repositories.UserCache;
+import com.example.DemoUser.repositories.UserSearchIndex;
+import com.example.DemoUser.responses.UserImportResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bulk insert of users from a streamed CSV or NDJSON body.
+ * <p>
+ * Rows are read line by line and processed in batches of {@code app.import.batch-size}:
+ * each batch is validated, checked for duplicate username/email/phone (inside the batch
+ * and against the table with one query), hashed on the {@link PasswordHasher} pool and
+ * written with a single JDBC batch in one transaction. Going through JDBC instead of
+ * {@code userRepository.saveAll} is what makes batching possible while {@code User.id}
+ * stays {@code IDENTITY}; with {@code rewriteBatchedStatements=true} MySQL Connector/J
+ * sends each batch as multi-row INSERTs. A batch that still hits a constraint (a
+ * concurrent registration) is rolled back and retried row by row so only the offending
+ * rows are reported as failed.
+ */
+@Slf4j
+@Service
+public class UserImportService implements IUserImportService {
+    private static final int MAX_REPORTED_FAILURES = 1000;
+    private static final String INSERT_SQL = "INSERT INTO users (username, password, email, phone, date_of_birth, "
+            + "is_active, role, token_version, version, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, 0, 0, ?, ?)";
+    // UNION thay vì OR để mỗi nhánh dùng unique index của cột đó
+    private static final String EXISTING_SQL = "SELECT username, email, phone FROM users WHERE username IN (:usernames) "
+            + "UNION SELECT username, email, phone FROM users WHERE email IN (:emails) "
+            + "UNION SELECT username, email, phone FROM users WHERE phone IN (:phones)";
+    private static final String INSERTED_SQL = "SELECT id, username, email, phone FROM users WHERE username IN (:usernames)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordHasher passwordHasher;
+    private final UserCache userCache;
+    private final UserSearchIndex searchIndex;
+    private final UserChangeOutbox changeOutbox;
+    private final ObjectReader ndjsonReader;
+    private final int batchSize;
+
+    public UserImportService(JdbcTemplate jdbcTemplate,
+                             NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             PasswordHasher passwordHasher,
+                             UserCache userCache,
+                             UserSearchIndex searchIndex,
+                             UserChangeOutbox changeOutbox,
+                             ObjectMapper objectMapper,
+                             @Value("${app.import.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.passwordHasher = passwordHasher;
+        this.userCache = userCache;
+        this.searchIndex = searchIndex;
+        this.changeOutbox = changeOutbox;
+        this.ndjsonReader = objectMapper.readerFor(UserImportDTO.class);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Override
+    public UserImportResponse importCsv(InputStream body) throws IOException, InvalidParamException {
+        Import job = new Import();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            Map<String, Integer> columns = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                job.lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                List<String> fields = parseCsvLine(line);
+                if (columns == null) {
+                    columns = csvColumns(fields);
+                    continue;
+                }
+                UserImportDTO user;
+                try {
+                    user = csvRow(columns, fields);
+                } catch (DateTimeParseException e) {
+                    job.reject("Invalid date_of_birth: " + e.getParsedString());
+                    continue;
+                }
+                job.add(user);
+            }
+        }
+        return job.finish();
+    }
+
+    @Override
+    public UserImportResponse importNdjson(InputStream body) throws IOException {
+        Import job = new Import();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                job.lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                UserImportDTO user;
+                try {
+                    user = ndjsonReader.readValue(line);
+                } catch (JsonProcessingException e) {
+                    job.reject("Invalid JSON: " + e.getOriginalMessage());
+                    continue;
+                }
+                job.add(user);
+            }
+        }
+        return job.finish();
+    }
+
+    private static Map<String, Integer> csvColumns(List<String> header) throws InvalidParamException {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT).replace("_", ""), i);
+        }
+        for (String required : List.of("username", "password", "email", "phone")) {
+            if (!columns.containsKey(required)) {
+                throw new InvalidParamException("CSV header must contain column: " + required);
+            }
+        }
+        return columns;
+    }
+
+    private static UserImportDTO csvRow(Map<String, Integer> columns, List<String> fields) {
+        String dateOfBirth = csvField(columns, fields, "dateofbirth");
+        String active = csvField(columns, fields, columns.containsKey("isactive") ? "isactive" : "active");
+        return UserImportDTO.builder()
+                .username(csvField(columns, fields, "username"))
+                .password(csvField(columns, fields, "password"))
+                .email(csvField(columns, fields, "email"))
+                .phone(csvField(columns, fields, "phone"))
+                .dateOfBirth(dateOfBirth == null ? null : LocalDate.parse(dateOfBirth))
+                .role(csvField(columns, fields, "role"))
+                .active(active == null ? null : Boolean.valueOf(active))
+                .build();
+    }
+
+    private static String csvField(Map<String, Integer> columns, List<String> fields, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // RFC 4180 trên một dòng: trường có thể nằm trong "..." và "" là dấu nháy kép; không hỗ trợ xuống dòng trong trường
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private record Row(long line, UserImportDTO user) {
+    }
+
+    /** State of one import request; not shared between threads. */
+    private final class Import {
+        private final long startedAt = System.nanoTime();
+        private final List<Row> pending = new ArrayList<>(batchSize);
+        private final List<UserImportResponse.Failure> failures = new ArrayList<>();
+        private long lineNumber;
+        private long total;
+        private long inserted;
+        private long failed;
+
+        void add(UserImportDTO user) {
+            total++;
+            pending.add(new Row(lineNumber, user));
+            if (pending.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        // Dòng hiện tại không đọc được thành user
+        void reject(String reason) {
+            total++;
+            failed++;
+            if (failures.size() < MAX_REPORTED_FAILURES) {
+                failures.add(new UserImportResponse.Failure(lineNumber, null, reason));
+            }
+        }
+
+        private void fail(Row row, String reason) {
+            failed++;
+            if (failures.size() < MAX_REPORTED_FAILURES) {
+                failures.add(new UserImportResponse.Failure(row.line(), row.user().getUsername(), reason));
+            }
+        }
+
+        UserImportResponse finish() {
+            flush();
+            long elapsedNanos = System.nanoTime() - startedAt;
+            long elapsedMs = elapsedNanos / 1_000_000;
+            double rowsPerSecond = elapsedNanos == 0 ? 0 : inserted * 1_000_000_000d / elapsedNanos;
+            log.info("User import finished: {} rows, {} inserted, {} failed in {} ms ({} rows/s)",
+                    total, inserted, failed, elapsedMs, Math.round(rowsPerSecond));
+            return UserImportResponse.builder()
+                    .total(total)
+                    .inserted(inserted)
+                    .failed(failed)
+                    .failures(failures)
+                    .elapsedMs(elapsedMs)
+                    .rowsPerSecond(Math.round(rowsPerSecond * 10) / 10d)
+                    .build();
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<Row> batch = rejectDuplicates(validate(pending));
+            pending.clear();
+            if (batch.isEmpty()) {
+                return;
+            }
+            hashPasswords(batch);
+            LocalDateTime now = LocalDateTime.now();
+            List<String> usernames = batch.stream().map(row -> row.user().getUsername()).toList();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, row) -> bind(ps, row.user(), now));
+                    changeOutbox.appendUsernames(UserChangeEvent.Type.IMPORTED, usernames);
+                });
+                inserted += batch.size();
+            } catch (DataIntegrityViolationException e) {
+                // Có user được tạo đồng thời sau bước kiểm tra trùng: chèn lại từng dòng để chỉ báo lỗi dòng vi phạm
+                log.debug("Import batch rejected, retrying row by row: {}", e.getMostSpecificCause().getMessage());
+                for (Row row : batch) {
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> {
+                            jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, row.user(), now));
+                            changeOutbox.append(UserChangeEvent.Type.IMPORTED, null, row.user().getUsername(), null);
+                        });
+                        inserted++;
+                    } catch (DataIntegrityViolationException rowException) {
+                        fail(row, GlobalExceptionHandler.describeDataIntegrityViolation(rowException));
+                    }
+                }
+            }
+            // Caffeine không cache kết quả rỗng, nhưng một lookup đang chạy dở có thể vừa đọc trước khi insert
+            userCache.evict(null, usernames.toArray(String[]::new));
+            // Id do IDENTITY sinh ra, đọc lại một lần cho cả batch để đưa vào search index
+            namedParameterJdbcTemplate.query(INSERTED_SQL, Map.of("usernames", usernames), rs -> {
+                searchIndex.index(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4));
+            });
+        }
+
+        private List<Row> validate(List<Row> rows) {
+            List<Row> valid = new ArrayList<>(rows.size());
+            for (Row row : rows) {
+                String error = validationError(row.user());
+                if (error == null) {
+                    valid.add(row);
+                } else {
+                    fail(row, error);
+                }
+            }
+            return valid;
+        }
+
+        private List<Row> rejectDuplicates(List<Row> rows) {
+            if (rows.isEmpty()) {
+                return rows;
+            }
+            Set<String> usernames = new HashSet<>();
+            Set<String> emails = new HashSet<>();
+            Set<String> phones = new HashSet<>();
+            for (Row row : rows) {
+                usernames.add(row.user().getUsername());
+                emails.add(row.user().getEmail());
+                phones.add(row.user().getPhone());
+            }
+            Set<String> existingUsernames = new HashSet<>();
+            Set<String> existingEmails = new HashSet<>();
+            Set<String> existingPhones = new HashSet<>();
+            namedParameterJdbcTemplate.query(EXISTING_SQL,
+                    Map.of("usernames", usernames, "emails", emails, "phones", phones),
+                    rs -> {
+                        existingUsernames.add(rs.getString(1));
+                        existingEmails.add(rs.getString(2));
+                        existingPhones.add(rs.getString(3));
+                    });
+
+            List<Row> unique = new ArrayList<>(rows.size());
+            Set<String> seenUsernames = new HashSet<>();
+            Set<String> seenEmails = new HashSet<>();
+            Set<String> seenPhones = new HashSet<>();
+            for (Row row : rows) {
+                UserImportDTO user = row.user();
+                if (existingUsernames.contains(user.getUsername())) {
+                    fail(row, "Username already exists: " + user.getUsername());
+                } else if (existingEmails.contains(user.getEmail())) {
+                    fail(row, "Email already exists: " + user.getEmail());
+                } else if (existingPhones.contains(user.getPhone())) {
+                    fail(row, "Phone already exists: " + user.getPhone());
+                } else if (!seenUsernames.add(user.getUsername())) {
+                    fail(row, "Duplicate username in import: " + user.getUsername());
+                } else if (!seenEmails.add(user.getEmail())) {
+                    fail(row, "Duplicate email in import: " + user.getEmail());
+                } else if (!seenPhones.add(user.getPhone())) {
+                    fail(row, "Duplicate phone in import: " + user.getPhone());
+                } else {
+                    unique.add(row);
+                }
+            }
+            return unique;
+        }
+
+        private void hashPasswords(List<Row> rows) {
+            List<UserImportDTO> raw = new ArrayList<>(rows.size());
+            for (Row row : rows) {
+                if (!passwordHasher.isEncoded(row.user().getPassword())) {
+                    raw.add(row.user());
+                }
+            }
+            List<String> hashes = passwordHasher.encodeAll(raw.stream().map(UserImportDTO::getPassword).toList());
+            for (int i = 0; i < raw.size(); i++) {
+                raw.get(i).setPassword(hashes.get(i));
+            }
+        }
+    }
+
+    private static String validationError(UserImportDTO user) {
+        if (isBlank(user.getUsername()) || isBlank(user.getPassword())
+                || isBlank(user.getEmail()) || isBlank(user.getPhone())) {
+            return "username, password, email and phone are required";
+        }
+        if (user.getUsername().length() > 50) {
+            return "Username must be at most 50 characters";
+        }
+        if (user.getEmail().length() > 100) {
+            return "Email must be at most 100 characters";
+        }
+        if (user.getPhone().length() > 20) {
+            return "Phone must be at most 20 characters";
+        }
+        if (user.getPassword().length() > 255) {
+            return "Password must be at most 255 characters";
+        }
+        if (user.getRole() == null) {
+            user.setRole("user");
+        } else if (user.getRole().length() > 10) {
+            return "Role must be at most 10 characters";
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static void bind(PreparedStatement ps, UserImportDTO user, LocalDateTime now) throws SQLException {
+        ps.setString(1, user.getUsername());
+        ps.setString(2, user.getPassword());
+        ps.setString(3, user.getEmail());
+        ps.setString(4, user.getPhone());
+        ps.setDate(5, user.getDateOfBirth() == null ? null : Date.valueOf(user.getDateOfBirth()));
+        ps.setBoolean(6, user.getActive() == null || user.getActive());
+        ps.setString(7, user.getRole());
+        ps.setTimestamp(8, Timestamp.valueOf(now));
+        ps.setTimestamp(9, Timestamp.valueOf(now));
+    }
+}
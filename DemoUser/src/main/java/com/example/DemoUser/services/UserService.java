@@ -1,115 +1,311 @@
 package com.example.DemoUser.services;
 
+import com.example.DemoUser.componnents.AvatarStorage;
+import com.example.DemoUser.componnents.AvatarThumbnailer;
 import com.example.DemoUser.componnents.JwtTokenUtils;
+import com.example.DemoUser.componnents.PasswordHasher;
+import com.example.DemoUser.componnents.ReadYourWrites;
+import com.example.DemoUser.componnents.TokenRevocationList;
+import com.example.DemoUser.componnents.UserChangeOutbox;
+import com.example.DemoUser.dtos.BulkUserUpdateDTO;
+import com.example.DemoUser.dtos.UserPatchDTO;
 import com.example.DemoUser.exceptions.DataNotFoundException;
+import com.example.DemoUser.exceptions.InvalidParamException;
 import com.example.DemoUser.models.User;
+import com.example.DemoUser.models.UserChangeEvent;
+import com.example.DemoUser.repositories.UserCache;
 import com.example.DemoUser.repositories.UserRepository;
+import com.example.DemoUser.repositories.UserSearchIndex;
+import com.example.DemoUser.responses.BulkUpdateResponse;
+import com.example.DemoUser.responses.UserBatchResponse;
+import com.example.DemoUser.responses.UserPageResponse;
+import com.example.DemoUser.responses.UserResponse;
+import com.example.DemoUser.responses.UserSearchResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.authentication.AuthenticationManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class UserService implements IUserService{
+    // Số id trong một câu UPDATE ... IN (...), cũng là độ rộng khoảng id khi cập nhật theo filter
+    private static final int BULK_CHUNK_SIZE = 1000;
+
     private final UserRepository userRepository;
-    private final AuthenticationManager authenticationManager;
-    private final PasswordEncoder passwordEncoder;
+    private final UserCache userCache;
+    private final UserSearchIndex searchIndex;
+    private final PasswordHasher passwordHasher;
     private final JwtTokenUtils jwtTokenUtil;
+    private final TokenRevocationList revocationList;
+    private final AvatarStorage avatarStorage;
+    private final AvatarThumbnailer avatarThumbnailer;
+    private final ReadYourWrites readYourWrites;
+    // Mỗi lần ghi users đi kèm một event outbox trong cùng transaction để các node khác xóa cache
+    private final TransactionTemplate transactionTemplate;
+    private final UserChangeOutbox changeOutbox;
+    // Executor @Async mặc định của Spring Boot (virtual thread khi spring.threads.virtual.enabled), khớp theo tên bean
+    private final Executor applicationTaskExecutor;
 
-    @Value("${app.upload-dir}")
-    private String uploadDir;
+    @Override
+    public UserPageResponse getUsersPage(Long after, int limit) {
+        // Lấy dư một bản ghi để biết còn trang sau hay không mà không cần COUNT(*)
+        List<UserResponse> users = userRepository.findPageAfter(after == null ? 0L : after, Limit.of(limit + 1));
+        boolean hasMore = users.size() > limit;
+        if (hasMore) {
+            users = users.subList(0, limit);
+        }
+        return UserPageResponse.builder()
+                .users(users)
+                .nextCursor(users.isEmpty() ? null : users.get(users.size() - 1).id())
+                .hasMore(hasMore)
+                .build();
+    }
 
     @Override
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    @Transactional(readOnly = true)
+    public void streamAllUsers(Consumer<UserResponse> consumer) {
+        try (Stream<UserResponse> users = userRepository.streamAll()) {
+            users.forEach(consumer);
+        }
+    }
+
+    @Override
+    public UserSearchResponse searchUsers(String query, int page, int size) {
+        return searchIndex.search(query, page, size);
     }
 
     @Override
     public User getUserById(Long id) throws Exception {
-        return userRepository.findById(id)
+        return userCache.findById(id)
                 .orElseThrow(() -> new DataNotFoundException("Cannot find user with id: "+id));
     }
 
-    public User saveWithAvatar(User user, MultipartFile avatarFile) throws IOException{
-        // Xử lý upload file ảnh nếu có
-        if (avatarFile != null && !avatarFile.isEmpty()) {
-            // Tạo thư mục uploads nếu chưa tồn tại
-            File uploadDirFile = new File(uploadDir);
-            if (!uploadDirFile.exists()) {
-                uploadDirFile.mkdirs();
-            }
-            // Xóa file ảnh cũ nếu tồn tại
-            if (user.getAvatar() != null && !user.getAvatar().isEmpty()) {
-                File oldFile = new File(user.getAvatar().substring(1)); // Bỏ dấu "/" đầu tiên
-                if (oldFile.exists()) {
-                    oldFile.delete();
-                }
+    @Override
+    public UserBatchResponse getUsersByIds(Collection<Long> ids) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        uniqueIds.remove(null);
+        // Id đã có trong cache không chạm DB, phần còn lại được nạp bằng một câu IN
+        Map<Long, User> found = userCache.findAllById(uniqueIds);
+        List<UserResponse> users = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : uniqueIds) {
+            User user = found.get(id);
+            if (user != null) {
+                users.add(UserResponse.from(user));
+            } else {
+                missing.add(id);
             }
-            // Tạo tên file duy nhất để tránh trùng lặp
-            String fileName = UUID.randomUUID() + "_" + avatarFile.getOriginalFilename();
-            Path filePath = Paths.get(uploadDir, fileName);
-
-            // Lưu file vào thư mục uploads
-            Files.write(filePath, avatarFile.getBytes());
+        }
+        return UserBatchResponse.builder()
+                .users(users)
+                .missing(missing)
+                .build();
+    }
 
-            // Lưu đường dẫn file vào cột thumbnail
-            user.setAvatar("/" + uploadDir + fileName);
+    public User saveWithAvatar(User user, MultipartFile avatarFile) throws IOException{
+        // Xử lý upload file ảnh nếu có: ghi stream xuống đĩa, tên file là hash nội dung
+        if (avatarFile != null && !avatarFile.isEmpty()) {
+            // Lưu đường dẫn file vào cột avatar; ảnh thu nhỏ được tạo lại ở nền
+            user.setAvatar(avatarStorage.store(avatarFile));
+            user.setAvatarVariants(null);
         }
         return user;
     }
 
+    // File vừa store() được giữ chỗ tới khi transaction tham chiếu nó kết thúc, để cleanup không xóa mất
+    private void releaseAvatar(User user, MultipartFile avatarFile) {
+        if (avatarFile != null && !avatarFile.isEmpty()) {
+            avatarStorage.release(user.getAvatar());
+        }
+    }
+
     @Override
     public User saveUserWithAvatar(User user, MultipartFile avatarFile) throws IOException {
-        User userNew = saveWithAvatar(user,avatarFile);
         // **Mã hóa mật khẩu**
-        String password = userNew.getPassword();
-        String encodedPassword = passwordEncoder.encode(password);
-        userNew.setPassword(encodedPassword);
+        String password = user.getPassword();
+        String encodedPassword = passwordHasher.encode(password);
+        user.setPassword(encodedPassword);
 
+        User userNew = saveWithAvatar(user,avatarFile);
         // Lưu book vào cơ sở dữ liệu
-        return userRepository.save(userNew);
+        User savedUser;
+        try {
+            savedUser = transactionTemplate.execute(status -> {
+                User saved = userRepository.save(userNew);
+                changeOutbox.append(UserChangeEvent.Type.REGISTERED, saved.getId(), saved.getUsername(), null);
+                return saved;
+            });
+        } catch (RuntimeException e) {
+            avatarStorage.deleteLater(userNew.getAvatar());
+            throw e;
+        } finally {
+            releaseAvatar(userNew, avatarFile);
+        }
+        userCache.evict(savedUser);
+        readYourWrites.markWritten(savedUser.getId());
+        searchIndex.index(savedUser);
+        avatarThumbnailer.submit(savedUser.getAvatar());
+        return savedUser;
     }
 
     @Override
     public User updateUser(Long id, User user, MultipartFile avatarFile) throws Exception {
         User existingUserOpt = userRepository.findById(id)
                 .orElseThrow(() -> new DataNotFoundException("Cannot find user with id: "+id));
-        user.setAvatar(existingUserOpt.getAvatar());
-        User userNew = saveWithAvatar(user,avatarFile);
+        String previousAvatar = existingUserOpt.getAvatar();
+        user.setAvatar(previousAvatar);
+        // Mật khẩu rỗng hoặc trùng hash đang lưu thì giữ nguyên, ngược lại là mật khẩu thô mới cần băm
+        boolean passwordChanged = user.getPassword() != null && !user.getPassword().isBlank()
+                && !user.getPassword().equals(existingUserOpt.getPassword())
+                && !passwordHasher.matches(user.getPassword(), existingUserOpt.getPassword());
+        // Đổi username, mật khẩu hoặc trạng thái thì các token đã cấp phải hết hiệu lực
+        String previousUsername = existingUserOpt.getUsername();
+        boolean credentialsChanged = !Objects.equals(existingUserOpt.getUsername(), user.getUsername())
+                || passwordChanged
+                || existingUserOpt.isActive() != user.isActive();
         existingUserOpt.setUsername(user.getUsername());
         existingUserOpt.setEmail(user.getEmail());
         existingUserOpt.setPhone(user.getPhone());
-        existingUserOpt.setPassword(user.getPassword());
+        if (passwordChanged) {
+            existingUserOpt.setPassword(passwordHasher.encode(user.getPassword()));
+        }
         existingUserOpt.setDateOfBirth(user.getDateOfBirth());
         existingUserOpt.setActive(user.isActive());
-        existingUserOpt.setAvatar(userNew.getAvatar());
-        return userRepository.save(existingUserOpt);
+        if (credentialsChanged) {
+            existingUserOpt.setTokenVersion(existingUserOpt.getTokenVersion() + 1);
+        }
+        // Lưu file sau các bước có thể ném lỗi ở trên, để file chỉ được giữ chỗ trong lúc ghi DB
+        User userNew = saveWithAvatar(user,avatarFile);
+        if (!Objects.equals(previousAvatar, userNew.getAvatar())) {
+            existingUserOpt.setAvatar(userNew.getAvatar());
+            existingUserOpt.setAvatarVariants(null);
+        }
+        User savedUser;
+        try {
+            savedUser = transactionTemplate.execute(status -> {
+                User saved = userRepository.save(existingUserOpt);
+                changeOutbox.append(UserChangeEvent.Type.UPDATED, saved.getId(), saved.getUsername(), previousUsername);
+                return saved;
+            });
+        } finally {
+            releaseAvatar(userNew, avatarFile);
+        }
+        userCache.evict(savedUser.getId(), previousUsername, savedUser.getUsername());
+        readYourWrites.markWritten(savedUser.getId());
+        searchIndex.index(savedUser);
+        revocationList.record(savedUser);
+        // File ảnh cũ được xóa ở nền, sau khi DB đã ghi và chỉ khi không còn user nào dùng
+        if (!Objects.equals(previousAvatar, savedUser.getAvatar())) {
+            avatarStorage.deleteLater(previousAvatar);
+            avatarThumbnailer.submit(savedUser.getAvatar());
+        }
+        return savedUser;
+    }
+
+    @Override
+    public User patchUser(Long id, UserPatchDTO patch) throws DataNotFoundException {
+        // So với bản trong cache trước: request không đổi gì thì trả về luôn, không chạm DB
+        User cached = userCache.findById(id)
+                .orElseThrow(() -> new DataNotFoundException("Cannot find user with id: "+id));
+        boolean passwordChanged = patch.getPassword() != null
+                && !passwordHasher.matches(patch.getPassword(), cached.getPassword());
+        boolean versionMatches = patch.getVersion() == null || patch.getVersion().equals(cached.getVersion());
+        if (versionMatches && !passwordChanged && !hasChanges(patch, cached)) {
+            return cached;
+        }
+
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new DataNotFoundException("Cannot find user with id: "+id));
+        if (patch.getVersion() != null && !patch.getVersion().equals(user.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(User.class, id);
+        }
+        if (!passwordChanged && !hasChanges(patch, user)) {
+            return user;
+        }
+        String previousUsername = user.getUsername();
+        boolean credentialsChanged = passwordChanged
+                || changed(patch.getUsername(), user.getUsername())
+                || changed(patch.getActive(), user.isActive());
+        // Chỉ set các trường khác giá trị cũ; khi merge, @DynamicUpdate sinh UPDATE đúng các cột đó
+        // kèm "where version = ?", nên một ghi đồng thời sau lần đọc ở trên sẽ bị từ chối
+        if (changed(patch.getUsername(), user.getUsername())) {
+            user.setUsername(patch.getUsername());
+        }
+        if (changed(patch.getEmail(), user.getEmail())) {
+            user.setEmail(patch.getEmail());
+        }
+        if (changed(patch.getPhone(), user.getPhone())) {
+            user.setPhone(patch.getPhone());
+        }
+        if (changed(patch.getDateOfBirth(), user.getDateOfBirth())) {
+            user.setDateOfBirth(patch.getDateOfBirth());
+        }
+        if (changed(patch.getActive(), user.isActive())) {
+            user.setActive(patch.getActive());
+        }
+        if (passwordChanged) {
+            user.setPassword(passwordHasher.encode(patch.getPassword()));
+        }
+        if (credentialsChanged) {
+            user.setTokenVersion(user.getTokenVersion() + 1);
+        }
+        User savedUser = transactionTemplate.execute(status -> {
+            User saved = userRepository.save(user);
+            changeOutbox.append(UserChangeEvent.Type.UPDATED, saved.getId(), saved.getUsername(), previousUsername);
+            return saved;
+        });
+        userCache.evict(savedUser.getId(), previousUsername, savedUser.getUsername());
+        readYourWrites.markWritten(savedUser.getId());
+        searchIndex.index(savedUser);
+        if (credentialsChanged) {
+            revocationList.record(savedUser);
+        }
+        return savedUser;
+    }
+
+    private static boolean hasChanges(UserPatchDTO patch, User user) {
+        return changed(patch.getUsername(), user.getUsername())
+                || changed(patch.getEmail(), user.getEmail())
+                || changed(patch.getPhone(), user.getPhone())
+                || changed(patch.getDateOfBirth(), user.getDateOfBirth())
+                || changed(patch.getActive(), user.isActive());
+    }
+
+    private static boolean changed(Object requested, Object current) {
+        return requested != null && !requested.equals(current);
     }
 
     @Override
     public String login(String username, String password, String roleId) throws Exception {
-        Optional<User> optionalUser = userRepository.findByUsername(username);
+        Optional<User> optionalUser = userCache.findByUsername(username);
         if (optionalUser.isEmpty()) {
             throw new Exception("Invalid code or password");
         }
         User existingUser = optionalUser.get();
 
-        // **Kiểm tra mật khẩu**
-        if (!passwordEncoder.matches(password, existingUser.getPassword())) {
+        // **Kiểm tra mật khẩu** - chỉ xác thực BCrypt một lần, không gọi lại AuthenticationManager
+        if (!passwordHasher.matches(password, existingUser.getPassword())) {
             throw new BadCredentialsException("Invalid code or password");
         }
 
@@ -123,16 +319,38 @@ public class UserService implements IUserService{
             throw new Exception("User is locked");
         }
 
-        // Xác thực với Spring Security
-        UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
-                username, password, existingUser.getAuthorities()
-        );
-        authenticationManager.authenticate(authenticationToken);
+        upgradePasswordHash(existingUser, password);
 
         // Tạo token
         return jwtTokenUtil.generateToken(existingUser);
     }
 
+    // Băm lại mật khẩu ở nền khi hash đang lưu khác thuật toán/tham số cấu hình hiện tại
+    private void upgradePasswordHash(User user, String rawPassword) {
+        String currentHash = user.getPassword();
+        if (!passwordHasher.needsRehash(currentHash)) {
+            return;
+        }
+        passwordHasher.encodeAsync(rawPassword)
+                // Ghi DB trên executor khác: thread BCrypt chỉ dành cho việc băm
+                .thenAcceptAsync(newHash -> {
+                    boolean updated = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                        if (userRepository.updatePasswordHash(user.getId(), currentHash, newHash) == 0) {
+                            return false;
+                        }
+                        changeOutbox.append(UserChangeEvent.Type.PASSWORD_REHASHED, user.getId(), user.getUsername(), null);
+                        return true;
+                    }));
+                    if (updated) {
+                        userCache.evict(user);
+                    }
+                }, applicationTaskExecutor)
+                .exceptionally(e -> {
+                    log.debug("Skipped password rehash for user {}: {}", user.getId(), e.getMessage());
+                    return null;
+                });
+    }
+
 
 
     @Override
@@ -141,7 +359,7 @@ public class UserService implements IUserService{
             throw new Exception("Token is expired");
         }
         String userName = jwtTokenUtil.extractCode(token);
-        Optional<User> user = userRepository.findByUsername(userName);
+        Optional<User> user = userCache.findByUsername(userName);
         if (user.isPresent()) {
             return user.get();
         } else {
@@ -151,11 +369,89 @@ public class UserService implements IUserService{
 
     @Override
     public void deleteUser(Long id) throws DataNotFoundException {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new DataNotFoundException("Cannot find user with id: "+id));
-        user.setActive(false);
-        userRepository.save(user);
+        int affected = transactionTemplate.execute(status -> {
+            int deactivated = userRepository.updateActiveByIds(List.of(id), false, LocalDateTime.now());
+            if (deactivated > 0) {
+                changeOutbox.append(UserChangeEvent.Type.DEACTIVATED, id, null, null);
+            }
+            return deactivated;
+        });
+        if (affected == 0 && !userRepository.existsById(id)) {
+            throw new DataNotFoundException("Cannot find user with id: "+id);
+        }
+        userCache.evictIds(Set.of(id));
+        readYourWrites.markWritten(id);
+        revocationList.refresh();
     }
 
-
+    @Override
+    public BulkUpdateResponse bulkUpdate(BulkUserUpdateDTO request) throws InvalidParamException {
+        boolean byIds = request.getIds() != null && !request.getIds().isEmpty();
+        boolean byFilter = request.getFilter() != null && !request.getFilter().isEmpty();
+        if (byIds == byFilter) {
+            throw new InvalidParamException("Exactly one of ids or a non-empty filter is required");
+        }
+        String action = request.getAction();
+        if (BulkUserUpdateDTO.SET_ROLE.equals(action) && (request.getRole() == null || request.getRole().isBlank())) {
+            throw new InvalidParamException("Role is required for set_role");
+        }
+        boolean active = BulkUserUpdateDTO.ACTIVATE.equals(action);
+        long startedAt = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        long affected = 0;
+        int statements = 0;
+        if (byIds) {
+            List<Long> ids = new ArrayList<>(new LinkedHashSet<>(request.getIds()));
+            for (int from = 0; from < ids.size(); from += BULK_CHUNK_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(from + BULK_CHUNK_SIZE, ids.size()));
+                affected += transactionTemplate.execute(status -> {
+                    int updated = BulkUserUpdateDTO.SET_ROLE.equals(action)
+                            ? userRepository.updateRoleByIds(chunk, request.getRole(), now)
+                            : userRepository.updateActiveByIds(chunk, active, now);
+                    // Không biết dòng nào thực sự đổi nên ghi event cho cả chunk
+                    if (updated > 0) {
+                        changeOutbox.appendIds(UserChangeEvent.Type.BULK, chunk);
+                    }
+                    return updated;
+                });
+                statements++;
+            }
+            userCache.evictIds(Set.copyOf(ids));
+            readYourWrites.markWritten(ids.toArray(Long[]::new));
+        } else {
+            // Đi theo khoảng id trên khóa chính: mỗi câu UPDATE chỉ quét và khóa tối đa BULK_CHUNK_SIZE dòng
+            BulkUserUpdateDTO.Filter filter = request.getFilter();
+            long maxId = userRepository.findMaxId();
+            for (long from = 0; from < maxId; from += BULK_CHUNK_SIZE) {
+                long to = Math.min(from + BULK_CHUNK_SIZE, maxId);
+                long fromId = from;
+                affected += transactionTemplate.execute(status -> {
+                    int updated = BulkUserUpdateDTO.SET_ROLE.equals(action)
+                            ? userRepository.updateRoleInRange(fromId, to, filter.getRole(), filter.getActive(),
+                                    filter.getCreatedBefore(), request.getRole(), now)
+                            : userRepository.updateActiveInRange(fromId, to, filter.getRole(),
+                                    filter.getCreatedBefore(), active, now);
+                    // Không có id/username: node khác xóa toàn bộ cache như node này
+                    if (updated > 0) {
+                        changeOutbox.append(UserChangeEvent.Type.BULK, null, null, null);
+                    }
+                    return updated;
+                });
+                statements++;
+            }
+            userCache.invalidateAll();
+            readYourWrites.markWritten();
+        }
+        if (affected > 0) {
+            revocationList.refresh();
+        }
+        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+        log.info("Bulk {} updated {} users with {} statements in {} ms", action, affected, statements, elapsedMs);
+        return BulkUpdateResponse.builder()
+                .action(action)
+                .affected(affected)
+                .statements(statements)
+                .elapsedMs(elapsedMs)
+                .build();
+    }
 }
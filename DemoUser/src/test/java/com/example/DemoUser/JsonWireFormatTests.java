@@ -0,0 +1,59 @@
+package com.example.DemoUser;
+
+import com.example.DemoUser.responses.ResponseObject;
+import com.example.DemoUser.responses.UserResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Khóa định dạng JSON mà client đang dùng: ngày giờ là mảng số, không phải chuỗi ISO
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:wire-format;MODE=MySQL;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:h2-schema.sql'",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+class JsonWireFormatTests {
+    private static final ResponseObject ENVELOPE = ResponseObject.builder()
+            .message("Get user successfully")
+            .status(HttpStatus.OK)
+            .data(new UserResponse(1L, "tien le1", "user1@example.com", "0900000001", "/uploads/a.png",
+                    LocalDate.of(1990, 1, 2), true, "user",
+                    LocalDateTime.of(2024, 1, 2, 3, 4, 5), LocalDateTime.of(2024, 1, 2, 3, 4, 5, 6_000_000), 0L))
+            .build();
+    private static final String EXPECTED = "{\"message\":\"Get user successfully\",\"status\":\"OK\",\"data\":{"
+            + "\"id\":1,\"username\":\"tien le1\",\"email\":\"user1@example.com\",\"phone\":\"0900000001\","
+            + "\"avatar\":\"/uploads/a.png\",\"dateOfBirth\":[1990,1,2],\"active\":true,\"role\":\"user\","
+            + "\"createdAt\":[2024,1,2,3,4,5],\"updatedAt\":[2024,1,2,3,4,5,6000000],\"version\":0}}";
+
+    @Autowired
+    private RequestMappingHandlerAdapter handlerAdapter;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void messageConverterWritesDatesAsArrays() throws Exception {
+        MappingJackson2HttpMessageConverter converter = handlerAdapter.getMessageConverters().stream()
+                .filter(MappingJackson2HttpMessageConverter.class::isInstance)
+                .map(MappingJackson2HttpMessageConverter.class::cast)
+                .findFirst()
+                .orElseThrow();
+        assertEquals(EXPECTED, converter.getObjectMapper().writeValueAsString(ENVELOPE));
+    }
+
+    // GET /users/stream ghi bằng ObjectMapper được inject, phải cùng định dạng với các endpoint khác
+    @Test
+    void injectedObjectMapperMatchesMessageConverter() throws Exception {
+        assertEquals(EXPECTED, objectMapper.writeValueAsString(ENVELOPE));
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.DemoUser;
+
+import com.example.DemoUser.componnents.ReadWriteRoutingDataSource;
+import com.example.DemoUser.componnents.ReadYourWrites;
+import com.example.DemoUser.models.User;
+import com.example.DemoUser.repositories.UserCache;
+import com.example.DemoUser.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Hai DB H2 trong bộ nhớ đóng vai primary và replica; mỗi DB có một dòng id=1 với username khác nhau
+// để biết truy vấn đã đi tới đâu. Heartbeat của replica được ghi tay thay cho replication thật.
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadWriteRoutingTests.PRIMARY_URL,
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "app.datasource.replicas[0].url=" + ReadWriteRoutingTests.REPLICA_URL,
+        "app.datasource.max-replica-lag=5s",
+        "app.datasource.lag-check-interval=1h",
+        "app.user-cache.replica-ttl=300ms"
+})
+class ReadWriteRoutingTests {
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;MODE=MySQL;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:h2-schema.sql'";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;MODE=MySQL;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:h2-schema.sql'";
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+    @Autowired
+    private ReadYourWrites readYourWrites;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private UserCache userCache;
+    // Request giả do SpringBootTest gắn vào thread test
+    @Autowired
+    private MockHttpServletRequest request;
+
+    private final JdbcTemplate primary = jdbc(PRIMARY_URL);
+    private final JdbcTemplate replica = jdbc(REPLICA_URL);
+
+    @BeforeEach
+    void seed() {
+        request.setMethod("GET");
+        for (JdbcTemplate db : List.of(primary, replica)) {
+            db.update("DELETE FROM users");
+            db.update("DELETE FROM replication_heartbeat");
+        }
+        insertUser(primary, 1L, "on-primary");
+        insertUser(replica, 1L, "on-replica");
+        userCache.invalidateAll();
+    }
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionGoesToFreshReplica() {
+        replicaHeartbeat(System.currentTimeMillis());
+        double before = routedTo("replica-0");
+
+        assertEquals("on-replica", readUsername());
+        assertEquals(before + 1, routedTo("replica-0"));
+    }
+
+    @Test
+    void readWriteTransactionGoesToPrimary() {
+        replicaHeartbeat(System.currentTimeMillis());
+
+        String username = new TransactionTemplate(transactionManager)
+                .execute(status -> userRepository.findById(1L).orElseThrow().getUsername());
+        assertEquals("on-primary", username);
+    }
+
+    @Test
+    void readsWhileServingWriteRequestGoToPrimary() {
+        replicaHeartbeat(System.currentTimeMillis());
+        request.setMethod("POST");
+
+        assertEquals("on-primary", readUsername());
+    }
+
+    @Test
+    void laggingReplicaIsSkipped() {
+        replicaHeartbeat(System.currentTimeMillis() - 60_000);
+
+        assertEquals("on-primary", readUsername());
+        assertTrue(Double.isFinite(meterRegistry.get("datasource.replica.lag").tag("pool", "replica-0").gauge().value()));
+    }
+
+    @Test
+    void replicaWithoutHeartbeatIsSkipped() {
+        routingDataSource.checkReplicaLag();
+
+        assertEquals("on-primary", readUsername());
+    }
+
+    @Test
+    void recentWriterReadsFromPrimary() {
+        replicaHeartbeat(System.currentTimeMillis());
+        User caller = User.builder().id(42L).username("writer").role("user").build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(caller, null, List.of()));
+
+        assertEquals("on-replica", readUsername());
+        readYourWrites.markWritten();
+        assertEquals("on-primary", readUsername());
+    }
+
+    @Test
+    void cacheMissReadsFreshReplicaForTheReplicaTtl() {
+        replicaHeartbeat(System.currentTimeMillis());
+
+        assertEquals("on-replica", userCache.findById(1L).orElseThrow().getUsername());
+        replica.update("UPDATE users SET username = 'on-replica-2' WHERE id = 1");
+        assertEquals("on-replica", userCache.findById(1L).orElseThrow().getUsername());
+        // Còn xa mới hết ttl 60 s thông thường
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertEquals("on-replica-2", userCache.findById(1L).orElseThrow().getUsername()));
+    }
+
+    @Test
+    void recentlyWrittenUserIsCachedFromPrimary() {
+        replicaHeartbeat(System.currentTimeMillis());
+        insertUser(primary, 2L, "written-on-primary");
+        insertUser(replica, 2L, "written-on-replica");
+        readYourWrites.markWritten(2L);
+
+        assertEquals("written-on-primary", userCache.findById(2L).orElseThrow().getUsername());
+        assertEquals("on-replica", userCache.findById(1L).orElseThrow().getUsername());
+    }
+
+    @Test
+    void userNotYetOnReplicaIsCachedFromPrimary() {
+        replicaHeartbeat(System.currentTimeMillis());
+        insertUser(primary, 3L, "only-on-primary");
+
+        assertEquals("only-on-primary", userCache.findById(3L).orElseThrow().getUsername());
+        assertEquals(3L, userCache.findByUsername("only-on-primary").orElseThrow().getId());
+        assertEquals(2, userCache.findAllById(List.of(1L, 3L)).size());
+    }
+
+    private String readUsername() {
+        return userRepository.findById(1L).orElseThrow().getUsername();
+    }
+
+    private void replicaHeartbeat(long beatMillis) {
+        replica.update("INSERT INTO replication_heartbeat (id, beat_millis) VALUES (1, ?)", beatMillis);
+        routingDataSource.checkReplicaLag();
+    }
+
+    private double routedTo(String target) {
+        return meterRegistry.get("datasource.routing").tag("target", target).counter().count();
+    }
+
+    private static void insertUser(JdbcTemplate db, long id, String username) {
+        db.update("INSERT INTO users (id, username, password, email, phone, is_active, role, created_at, updated_at) " +
+                        "VALUES (?, ?, 'x', ?, ?, TRUE, 'user', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)",
+                id, username, username + "@example.com", username);
+    }
+
+    private static JdbcTemplate jdbc(String url) {
+        return new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+    }
+}
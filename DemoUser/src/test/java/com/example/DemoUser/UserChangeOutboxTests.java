@@ -0,0 +1,140 @@
+package com.example.DemoUser;
+
+import com.example.DemoUser.componnents.TokenRevocationList;
+import com.example.DemoUser.dtos.BulkUserUpdateDTO;
+import com.example.DemoUser.dtos.UserPatchDTO;
+import com.example.DemoUser.models.User;
+import com.example.DemoUser.repositories.UserCache;
+import com.example.DemoUser.services.IUserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Hai context trong cùng JVM đóng vai hai node dùng chung một DB H2; mọi thay đổi được ghi ở node A,
+// node B phải thấy chúng qua outbox chứ không chờ hết TTL của cache
+class UserChangeOutboxTests {
+    // IGNORECASE: so sánh chuỗi không phân biệt hoa thường như collation mặc định của MySQL
+    static final String DB_URL = "jdbc:h2:mem:user-outbox;MODE=MySQL;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:h2-schema.sql'";
+    static final Duration MAX_LAG = Duration.ofSeconds(5);
+
+    static ConfigurableApplicationContext nodeA;
+    static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = startNode("node-a");
+        nodeB = startNode("node-b");
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodeB.close();
+        nodeA.close();
+    }
+
+    @Test
+    void renameOnOneNodeEvictsTheOther() throws Exception {
+        User user = nodeA.getBean(IUserService.class).saveUserWithAvatar(newUser("outbox-rename"), null);
+        UserCache cacheB = nodeB.getBean(UserCache.class);
+        assertTrue(cacheB.findByUsername("outbox-rename").isPresent());
+        assertEquals("outbox-rename", cacheB.findById(user.getId()).orElseThrow().getUsername());
+
+        nodeA.getBean(IUserService.class).patchUser(user.getId(), UserPatchDTO.builder().username("outbox-renamed").build());
+
+        await().atMost(MAX_LAG).untilAsserted(() -> {
+            assertEquals("outbox-renamed", cacheB.findById(user.getId()).orElseThrow().getUsername());
+            assertTrue(cacheB.findByUsername("outbox-rename").isEmpty());
+        });
+        assertTrue(nodeB.getBean(MeterRegistry.class).get("user.outbox.lag").timer().count() > 0);
+        // Node ghi đã tự xóa cache nên bỏ qua event của chính mình
+        assertEquals(0, nodeA.getBean(MeterRegistry.class).get("user.outbox.events")
+                .tag("outcome", "applied").counter().count());
+    }
+
+    @Test
+    void deactivationReachesTheOtherNode() throws Exception {
+        User user = nodeA.getBean(IUserService.class).saveUserWithAvatar(newUser("outbox-delete"), null);
+        UserCache cacheB = nodeB.getBean(UserCache.class);
+        TokenRevocationList revocationListB = nodeB.getBean(TokenRevocationList.class);
+        assertTrue(cacheB.findByUsername("outbox-delete").orElseThrow().isActive());
+        assertFalse(revocationListB.isRevoked(user.getId(), user.getTokenVersion()));
+
+        nodeA.getBean(IUserService.class).deleteUser(user.getId());
+
+        await().atMost(MAX_LAG).untilAsserted(() -> {
+            assertFalse(cacheB.findByUsername("outbox-delete").orElseThrow().isActive());
+            // Token cũ bị thu hồi qua event, không chờ lần poll updated_at tiếp theo
+            assertTrue(revocationListB.isRevoked(user.getId(), user.getTokenVersion()));
+        });
+    }
+
+    @Test
+    void bulkUpdateByFilterInvalidatesTheOtherNode() throws Exception {
+        User user = nodeA.getBean(IUserService.class).saveUserWithAvatar(newUser("outbox-bulk"), null);
+        UserCache cacheB = nodeB.getBean(UserCache.class);
+        assertEquals("user", cacheB.findById(user.getId()).orElseThrow().getRole());
+
+        nodeA.getBean(IUserService.class).bulkUpdate(BulkUserUpdateDTO.builder()
+                .action(BulkUserUpdateDTO.SET_ROLE)
+                .role("admin")
+                .filter(BulkUserUpdateDTO.Filter.builder().role("user").build())
+                .build());
+
+        await().atMost(MAX_LAG).untilAsserted(() ->
+                assertEquals("admin", cacheB.findById(user.getId()).orElseThrow().getRole()));
+    }
+
+    @Test
+    void passwordChangeEvictsUsernameCachedWithOtherCase() throws Exception {
+        User user = nodeA.getBean(IUserService.class).saveUserWithAvatar(newUser("outbox-case"), null);
+        UserCache cacheA = nodeA.getBean(UserCache.class);
+        String oldHash = cacheA.findByUsername("OUTBOX-CASE").orElseThrow().getPassword();
+
+        nodeA.getBean(IUserService.class).patchUser(user.getId(), UserPatchDTO.builder().password("secret2").build());
+
+        // Node ghi xóa cache ngay, không qua outbox
+        assertNotEquals(oldHash, cacheA.findByUsername("OUTBOX-CASE").orElseThrow().getPassword());
+        assertNotEquals(oldHash, cacheA.findByUsername("Outbox-Case").orElseThrow().getPassword());
+    }
+
+    private static User newUser(String username) {
+        return User.builder()
+                .username(username)
+                .password("secret1")
+                .email(username + "@example.com")
+                .phone(String.valueOf(Math.abs(username.hashCode())))
+                .role("user")
+                .active(true)
+                .build();
+    }
+
+    // Truyền như tham số dòng lệnh: properties() của builder chỉ là giá trị mặc định, thua application.yml
+    private static ConfigurableApplicationContext startNode(String nodeId) {
+        return new SpringApplicationBuilder(DemoUserApplication.class).run(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--spring.datasource.url=" + DB_URL,
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--app.upload-dir=target/outbox-test-uploads/",
+                "--app.user-outbox.node-id=" + nodeId,
+                "--app.user-outbox.poll-interval=50ms",
+                "--jwt.stateless=true",
+                "--jwt.revocation.refresh-interval=3600000",
+                "--logging.level.org.springframework.security=INFO");
+    }
+}
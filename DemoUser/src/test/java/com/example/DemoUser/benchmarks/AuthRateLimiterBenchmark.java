@@ -0,0 +1,54 @@
+package com.example.DemoUser.benchmarks;
+
+import com.example.DemoUser.componnents.AuthRateLimiter;
+import com.example.DemoUser.componnents.LatencyMetrics;
+import com.example.DemoUser.exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the per-client check in front of login/register, including its timer and
+ * counters, with 4 threads spread over {@code keys} client addresses. With few keys most
+ * checks are rejections on contended buckets; with many, admissions on mostly idle ones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class AuthRateLimiterBenchmark {
+
+    @Param({"16", "100000"})
+    public int keys;
+
+    private AuthRateLimiter rateLimiter;
+    private String[] addresses;
+
+    @Setup
+    public void setup() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        rateLimiter = new AuthRateLimiter(true, 200_000, Duration.ofMinutes(10),
+                20, Duration.ofSeconds(1), 5, Duration.ofSeconds(6),
+                new LatencyMetrics(meterRegistry, new double[]{0.5, 0.99, 0.999}), meterRegistry);
+        addresses = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            addresses[i] = "10." + (i >> 16 & 255) + "." + (i >> 8 & 255) + "." + (i & 255);
+        }
+    }
+
+    @Benchmark
+    public boolean checkClient() {
+        try {
+            rateLimiter.checkClient(addresses[ThreadLocalRandom.current().nextInt(addresses.length)]);
+            return true;
+        } catch (TooManyRequestsException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.DemoUser.benchmarks;
+
+import com.example.DemoUser.componnents.BatchLoader;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Cache-miss lookups by id from 64 concurrent requests against a database with
+ * {@code connections} pooled connections and {@code dbLatencyMicros} per round-trip.
+ * {@code direct} runs one query per lookup, like {@code findById}; {@code coalesced}
+ * goes through {@link BatchLoader} so lookups within {@code windowMicros} share one
+ * {@code IN} query. The queries per lookup are printed at the end of each trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+@State(Scope.Benchmark)
+public class BatchLoaderBenchmark {
+    private static final int USERS = 100_000;
+
+    @Param({"direct", "coalesced"})
+    public String loader;
+
+    @Param({"200"})
+    public long windowMicros;
+
+    @Param({"1000"})
+    public long dbLatencyMicros;
+
+    @Param({"10"})
+    public int connections;
+
+    private Semaphore connectionPool;
+    private BatchLoader<Long, String> batchLoader;
+    private DistributionSummary batchSizes;
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+
+    @Setup
+    public void setup() {
+        connectionPool = new Semaphore(connections, true);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        batchLoader = new BatchLoader<>("benchmark", this::queryAll, Duration.ofNanos(windowMicros * 1000), 100, meterRegistry);
+        batchSizes = meterRegistry.get("batch.loader.size").summary();
+    }
+
+    @TearDown
+    public void report() {
+        System.out.printf("%n%s: %.3f queries per lookup (mean coalesced batch %.1f)%n",
+                loader, queries.doubleValue() / Math.max(1, lookups.sum()), batchSizes.mean());
+    }
+
+    @Benchmark
+    public String lookup() {
+        long id = ThreadLocalRandom.current().nextLong(USERS);
+        lookups.increment();
+        return "direct".equals(loader)
+                ? queryAll(Set.of(id)).get(id)
+                : batchLoader.load(id);
+    }
+
+    private Map<Long, String> queryAll(Set<Long> ids) {
+        connectionPool.acquireUninterruptibly();
+        try {
+            queries.increment();
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(dbLatencyMicros));
+            Map<Long, String> rows = new HashMap<>();
+            for (Long id : ids) {
+                rows.put(id, "user-" + id);
+            }
+            return rows;
+        } finally {
+            connectionPool.release();
+        }
+    }
+}
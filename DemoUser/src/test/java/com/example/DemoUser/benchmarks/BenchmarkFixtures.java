@@ -0,0 +1,46 @@
+package com.example.DemoUser.benchmarks;
+
+import com.example.DemoUser.componnents.JwtClaimsCache;
+import com.example.DemoUser.componnents.JwtTokenUtils;
+import com.example.DemoUser.models.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Hand-wired collaborators for the JMH benchmarks, mirroring application.yml defaults.
+ */
+final class BenchmarkFixtures {
+    static final String API_PREFIX = "/api/v1";
+    static final String SECRET_KEY = "TaqlmGv1iEDMRiFp/pHuID1+T84IABfuA0xXh4GhiUI=";
+
+    private BenchmarkFixtures() {
+    }
+
+    static User user() {
+        return User.builder()
+                .id(42L)
+                .username("tien le")
+                .password("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z2l9.8zFF8sdbW0ZC0XcNl6C")
+                .email("tien@example.com")
+                .phone("0912345678")
+                .avatar("/uploads/avatar.png")
+                .dateOfBirth(LocalDate.of(2000, 1, 1))
+                .active(true)
+                .role("user")
+                .createdAt(LocalDateTime.of(2025, 6, 14, 17, 43))
+                .updatedAt(LocalDateTime.of(2025, 6, 14, 17, 43))
+                .build();
+    }
+
+    static JwtTokenUtils jwtTokenUtils(JwtClaimsCache claimsCache) {
+        JwtTokenUtils jwtTokenUtils = new JwtTokenUtils(claimsCache);
+        ReflectionTestUtils.setField(jwtTokenUtils, "expiration", 2592000);
+        ReflectionTestUtils.setField(jwtTokenUtils, "secretKey", SECRET_KEY);
+        ReflectionTestUtils.setField(jwtTokenUtils, "keys", "");
+        ReflectionTestUtils.setField(jwtTokenUtils, "activeKeyId", "");
+        ReflectionTestUtils.invokeMethod(jwtTokenUtils, "init");
+        return jwtTokenUtils;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.DemoUser.benchmarks;
+
+import com.example.DemoUser.exceptions.GlobalExceptionHandler;
+import com.example.DemoUser.responses.ResponseObject;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message parsing in {@link GlobalExceptionHandler#handleDataIntegrityViolationException}
+ * for a MySQL duplicate-key error and for a message no pattern matches.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DataIntegrityViolationBenchmark {
+
+    @Param({"duplicate", "unmatched"})
+    public String kind;
+
+    private GlobalExceptionHandler handler;
+    private DataIntegrityViolationException exception;
+
+    @Setup
+    public void setup() {
+        handler = new GlobalExceptionHandler();
+        String message = "duplicate".equals(kind)
+                ? "Duplicate entry 'tien le1' for key 'users.username'"
+                : "Column 'email' cannot be null";
+        exception = new DataIntegrityViolationException("could not execute statement",
+                new SQLIntegrityConstraintViolationException(message));
+    }
+
+    @Benchmark
+    public ResponseEntity<ResponseObject> handle() {
+        return handler.handleDataIntegrityViolationException(exception);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.DemoUser.benchmarks;
+
+import com.example.DemoUser.componnents.JwtClaimsCache;
+import com.example.DemoUser.componnents.JwtTokenUtils;
+import com.example.DemoUser.componnents.LatencyMetrics;
+import com.example.DemoUser.componnents.TokenRevocationList;
+import com.example.DemoUser.filters.JwtTokenFilter;
+import com.example.DemoUser.filters.PublicRoutes;
+import com.example.DemoUser.models.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link JwtTokenFilter} on an authenticated request, with and without
+ * the verified-token cache, and in stateless mode (principal built from claims).
+ * {@code bypassedRequest} covers a public route, i.e. the {@link PublicRoutes} match alone.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtTokenFilterBenchmark {
+
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    @Param({"false", "true"})
+    public boolean stateless;
+
+    private JwtTokenFilter filter;
+    private String authorization;
+    private final FilterChain chain = (request, response) -> { };
+
+    @Setup
+    public void setup() throws Exception {
+        User user = BenchmarkFixtures.user();
+        JwtTokenUtils jwtTokenUtils = BenchmarkFixtures.jwtTokenUtils(
+                new JwtClaimsCache(cacheEnabled, 10_000, 300, new SimpleMeterRegistry()));
+        filter = new JwtTokenFilter(username -> user, jwtTokenUtils,
+                new TokenRevocationList(null, stateless, 2592000, Duration.ofMinutes(1), null),
+                new LatencyMetrics(new SimpleMeterRegistry(), new double[]{0.5, 0.99, 0.999}),
+                new PublicRoutes(BenchmarkFixtures.API_PREFIX),
+                new ObjectMapper());
+        ReflectionTestUtils.setField(filter, "statelessAuthentication", stateless);
+        authorization = "Bearer " + jwtTokenUtils.generateToken(user);
+    }
+
+    @Benchmark
+    public int authenticatedRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", BenchmarkFixtures.API_PREFIX + "/users/details");
+        request.setServletPath(BenchmarkFixtures.API_PREFIX + "/users/details");
+        request.addHeader("Authorization", authorization);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        SecurityContextHolder.clearContext();
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public int bypassedRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", BenchmarkFixtures.API_PREFIX + "/users/login");
+        request.setServletPath(BenchmarkFixtures.API_PREFIX + "/users/login");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response.getStatus();
+    }
+}
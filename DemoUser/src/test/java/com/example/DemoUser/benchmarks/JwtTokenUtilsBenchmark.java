@@ -0,0 +1,61 @@
+package com.example.DemoUser.benchmarks;
+
+import com.example.DemoUser.componnents.JwtClaimsCache;
+import com.example.DemoUser.componnents.JwtTokenUtils;
+import com.example.DemoUser.componnents.VerifiedToken;
+import com.example.DemoUser.models.User;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signing, parsing and validation cost of {@link JwtTokenUtils}. Run with {@code -Djmh.args="-prof gc"}
+ * to get allocations per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtTokenUtilsBenchmark {
+
+    private JwtTokenUtils jwtTokenUtils;
+    private User user;
+    private String token;
+    private VerifiedToken verifiedToken;
+
+    @Setup
+    public void setup() throws Exception {
+        user = BenchmarkFixtures.user();
+        // Cache tắt để extractClaim luôn đi qua bước xác thực chữ ký
+        jwtTokenUtils = BenchmarkFixtures.jwtTokenUtils(
+                new JwtClaimsCache(false, 0, 0, new SimpleMeterRegistry()));
+        token = jwtTokenUtils.generateToken(user);
+        verifiedToken = jwtTokenUtils.verifyToken(token);
+    }
+
+    @Benchmark
+    public String generateToken() throws Exception {
+        return jwtTokenUtils.generateToken(user);
+    }
+
+    @Benchmark
+    public String extractClaim() {
+        return jwtTokenUtils.extractClaim(token, Claims::getSubject);
+    }
+
+    // Parse + xác thực chữ ký rồi so khớp với user
+    @Benchmark
+    public boolean validateToken() {
+        return jwtTokenUtils.validateToken(token, user);
+    }
+
+    // Chỉ phần so khớp, như JwtTokenFilter gọi sau khi đã verify
+    @Benchmark
+    public boolean validateVerifiedToken() {
+        return jwtTokenUtils.validateToken(verifiedToken, user);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.DemoUser.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hash and verify latency per BCrypt cost, reported as a sampled distribution (p50/p99/p99.9)
+ * to help pick {@code security.bcrypt.strength}. Other costs can be measured with
+ * {@code -Djmh.args="-p strength=11,13"}.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordEncoderBenchmark {
+
+    @Param({"8", "10", "12"})
+    public int strength;
+
+    private PasswordEncoder passwordEncoder;
+    private String encodedPassword;
+
+    @Setup
+    public void setup() {
+        passwordEncoder = new BCryptPasswordEncoder(strength);
+        encodedPassword = passwordEncoder.encode("123456");
+    }
+
+    @Benchmark
+    public String encode() {
+        return passwordEncoder.encode("123456");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordEncoder.matches("123456", encodedPassword);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.DemoUser.benchmarks;
+
+import com.example.DemoUser.models.User;
+import com.example.DemoUser.responses.ResponseObject;
+import com.example.DemoUser.responses.UserResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the {@link ResponseObject} envelope around one user and
+ * around a page of users, with the same ObjectMapper defaults Spring MVC uses.
+ * {@code payload} compares the {@link User} entity the controllers used to return with
+ * {@link UserResponse}; {@code mapper} compares plain reflection with Blackbird.
+ * Bytes per response are printed at setup; run with {@code -Djmh.args="-prof gc"} for
+ * allocations per operation ({@code gc.alloc.rate.norm}).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseSerializationBenchmark {
+
+    @Param({"entity", "dto"})
+    public String payload;
+
+    @Param({"default", "blackbird"})
+    public String mapper;
+
+    private ObjectMapper objectMapper;
+    private ResponseObject single;
+
+    @Setup
+    public void setup() throws Exception {
+        objectMapper = objectMapper(mapper);
+        single = envelope(data(payload, BenchmarkFixtures.user()));
+        System.out.println("bytes per response (" + payload + "): " + objectMapper.writeValueAsBytes(single).length);
+    }
+
+    // State riêng để tham số listSize không nhân số lần chạy của benchmark user()
+    @State(Scope.Benchmark)
+    public static class UserPage {
+        @Param({"10", "100"})
+        public int listSize;
+
+        private ResponseObject response;
+
+        @Setup
+        public void setup(ResponseSerializationBenchmark benchmark) throws Exception {
+            List<Object> users = new ArrayList<>(listSize);
+            for (int i = 0; i < listSize; i++) {
+                User user = BenchmarkFixtures.user();
+                user.setId((long) i);
+                user.setUsername("user" + i);
+                users.add(data(benchmark.payload, user));
+            }
+            response = envelope(users);
+            System.out.println("bytes per page of " + listSize + " (" + benchmark.payload + "): "
+                    + benchmark.objectMapper.writeValueAsBytes(response).length);
+        }
+    }
+
+    @Benchmark
+    public byte[] user() throws Exception {
+        return objectMapper.writeValueAsBytes(single);
+    }
+
+    @Benchmark
+    public byte[] userList(UserPage page) throws Exception {
+        return objectMapper.writeValueAsBytes(page.response);
+    }
+
+    private static ObjectMapper objectMapper(String mapper) {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if ("blackbird".equals(mapper)) {
+            builder.modulesToInstall(new BlackbirdModule());
+        }
+        return builder.build();
+    }
+
+    private static Object data(String payload, User user) {
+        user.setVersion(3L);
+        return "dto".equals(payload) ? UserResponse.from(user) : user;
+    }
+
+    private static ResponseObject envelope(Object data) {
+        return ResponseObject.builder()
+                .message("Get user successfully")
+                .status(HttpStatus.OK)
+                .data(data)
+                .build();
+    }
+}
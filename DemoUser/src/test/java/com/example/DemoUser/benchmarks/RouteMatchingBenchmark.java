@@ -0,0 +1,64 @@
+package com.example.DemoUser.benchmarks;
+
+import com.example.DemoUser.filters.PublicRoutes;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.util.Pair;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Public-route check done by {@code JwtTokenFilter} for every request: the compiled
+ * {@link PublicRoutes} trie versus the former list of {@code Pair}s rebuilt with
+ * {@code String.format} and matched with {@code contains} on each call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RouteMatchingBenchmark {
+
+    @Param({"POST /users/login", "GET /users/avatars/avatar.png", "GET /users/42", "POST /users/details"})
+    public String route;
+
+    private PublicRoutes publicRoutes;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setup() {
+        publicRoutes = new PublicRoutes(BenchmarkFixtures.API_PREFIX);
+        String[] parts = route.split(" ");
+        request = new MockHttpServletRequest(parts[0], BenchmarkFixtures.API_PREFIX + parts[1]);
+        request.setServletPath(BenchmarkFixtures.API_PREFIX + parts[1]);
+    }
+
+    @Benchmark
+    public boolean routeTable() {
+        return publicRoutes.matches(request);
+    }
+
+    @Benchmark
+    public boolean legacyLoop() {
+        final List<Pair<String, String>> bypassTokens = Arrays.asList(
+                Pair.of(String.format("%s/users", BenchmarkFixtures.API_PREFIX), "GET"),
+                Pair.of(String.format("%s/users/login", BenchmarkFixtures.API_PREFIX), "POST"),
+                Pair.of(String.format("%s/users/register", BenchmarkFixtures.API_PREFIX), "POST"),
+                Pair.of(String.format("%s/users/**", BenchmarkFixtures.API_PREFIX), "GET"),
+                Pair.of("/actuator/health", "GET"),
+                Pair.of("/actuator/prometheus", "GET")
+        );
+        String requestPath = request.getServletPath();
+        String requestMethod = request.getMethod();
+        for (Pair<String, String> bypassToken : bypassTokens) {
+            if (requestPath.contains(bypassToken.getFirst())
+                    && requestMethod.equals(bypassToken.getSecond())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
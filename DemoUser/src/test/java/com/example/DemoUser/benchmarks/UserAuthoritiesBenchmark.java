@@ -0,0 +1,33 @@
+package com.example.DemoUser.benchmarks;
+
+import com.example.DemoUser.models.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link User#getAuthorities()}, called for every authenticated request and whenever
+ * Spring Security checks a role.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserAuthoritiesBenchmark {
+
+    private User user;
+
+    @Setup
+    public void setup() {
+        user = BenchmarkFixtures.user();
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return user.getAuthorities();
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.DemoUser.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Request throughput with Tomcat's default 200 platform threads versus one virtual thread
+ * per request, when every request waits {@code dbLatencyMs} on the database while holding
+ * one of {@code connections} pooled connections. With a small pool both are bound by the
+ * pool; with a large one the platform threads become the limit. {@code blocking=synchronized}
+ * does the wait inside a monitor, which pins the virtual thread to its carrier (Java 21).
+ * <p>
+ * The virtual-thread cases need a Java 21 runtime; on Java 17 their setup fails and only
+ * {@code -p threads=platform} runs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadBenchmark {
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final int REQUESTS = 1000;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"10", "1000"})
+    public int connections;
+
+    @Param({"10"})
+    public int dbLatencyMs;
+
+    @Param({"lock", "synchronized"})
+    public String blocking;
+
+    private ExecutorService executor;
+    private Semaphore connectionPool;
+
+    @Setup
+    public void setup() {
+        executor = "virtual".equals(threads)
+                ? newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        connectionPool = new Semaphore(connections, true);
+    }
+
+    // Gọi qua MethodHandle để benchmark vẫn biên dịch với Java 17
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) MethodHandles.publicLookup()
+                    .findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class))
+                    .invokeExact();
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21, running " + Runtime.version());
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public void requests() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            executor.execute(() -> {
+                try {
+                    query();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    private void query() throws InterruptedException {
+        connectionPool.acquire();
+        try {
+            if ("synchronized".equals(blocking)) {
+                Object monitor = new Object();
+                synchronized (monitor) {
+                    Thread.sleep(dbLatencyMs);
+                }
+            } else {
+                ReentrantLock lock = new ReentrantLock();
+                lock.lock();
+                try {
+                    Thread.sleep(dbLatencyMs);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            connectionPool.release();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.DemoUser.componnents;
+
+import com.example.DemoUser.exceptions.TooManyRequestsException;
+import com.example.DemoUser.filters.RateLimitFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AuthRateLimiterTests {
+    // Gốc thời gian tùy ý, System.nanoTime() cũng có thể âm
+    private static final long T0 = -TimeUnit.HOURS.toNanos(1);
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void newBucketAdmitsBurstUpToCapacity() {
+        AuthRateLimiter.Limit limit = limit(3, Duration.ofSeconds(1));
+
+        assertEquals(0, limit.tryAcquire("a", T0));
+        assertEquals(0, limit.tryAcquire("a", T0));
+        assertEquals(0, limit.tryAcquire("a", T0));
+        assertEquals(SECOND, limit.tryAcquire("a", T0));
+        // Bị từ chối thì không tiêu token
+        assertEquals(SECOND / 2, limit.tryAcquire("a", T0 + SECOND / 2));
+        // Bucket khác không bị ảnh hưởng
+        assertEquals(0, limit.tryAcquire("b", T0));
+    }
+
+    @Test
+    void refillsOneRequestPerInterval() {
+        AuthRateLimiter.Limit limit = limit(2, Duration.ofSeconds(1));
+        limit.tryAcquire("a", T0);
+        limit.tryAcquire("a", T0);
+
+        assertEquals(1, limit.tryAcquire("a", T0 + SECOND - 1));
+        assertEquals(0, limit.tryAcquire("a", T0 + SECOND));
+        assertEquals(SECOND, limit.tryAcquire("a", T0 + SECOND));
+
+        // Nghỉ lâu hơn capacity * interval: bucket đầy lại nhưng không vượt capacity
+        long later = T0 + 10 * SECOND;
+        assertEquals(0, limit.tryAcquire("a", later));
+        assertEquals(0, limit.tryAcquire("a", later));
+        assertEquals(SECOND, limit.tryAcquire("a", later));
+    }
+
+    @Test
+    void checkRoundsRetryAfterUpToWholeSeconds() {
+        AtomicLong now = new AtomicLong(T0);
+        AuthRateLimiter rateLimiter = rateLimiter(1, Duration.ofMillis(1500), now);
+
+        rateLimiter.checkUsername("Alice");
+        assertEquals(2, assertThrows(TooManyRequestsException.class,
+                () -> rateLimiter.checkUsername(" alice ")).getRetryAfterSeconds());
+
+        now.set(T0 + SECOND / 2);
+        assertEquals(1, assertThrows(TooManyRequestsException.class,
+                () -> rateLimiter.checkUsername("alice")).getRetryAfterSeconds());
+
+        now.set(T0 + 1500 * 1_000_000L - 1);
+        assertEquals(1, assertThrows(TooManyRequestsException.class,
+                () -> rateLimiter.checkUsername("alice")).getRetryAfterSeconds());
+
+        now.set(T0 + 1500 * 1_000_000L);
+        rateLimiter.checkUsername("alice");
+    }
+
+    @Test
+    void filterAnswers429WithRetryAfterOnceClientBucketIsEmpty() throws Exception {
+        AtomicLong now = new AtomicLong(T0);
+        RateLimitFilter filter = new RateLimitFilter(rateLimiter(2, Duration.ofMillis(2500), now),
+                new ObjectMapper(), "/api/v1");
+
+        assertNotNull(login(filter).chain.getRequest());
+        assertNotNull(login(filter).chain.getRequest());
+
+        Exchange rejected = login(filter);
+        assertNull(rejected.chain.getRequest());
+        assertEquals(429, rejected.response.getStatus());
+        assertEquals("3", rejected.response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals("application/json", rejected.response.getContentType());
+        assertEquals("Too many requests, please retry later",
+                new ObjectMapper().readTree(rejected.response.getContentAsByteArray()).get("message").asText());
+
+        now.set(T0 + 2 * SECOND);
+        assertEquals("1", login(filter).response.getHeader(HttpHeaders.RETRY_AFTER));
+
+        now.set(T0 + 2500 * 1_000_000L);
+        Exchange admitted = login(filter);
+        assertNotNull(admitted.chain.getRequest());
+        assertEquals(200, admitted.response.getStatus());
+    }
+
+    @Test
+    void filterSkipsRoutesThatAreNotLimited() throws Exception {
+        AtomicLong now = new AtomicLong(T0);
+        RateLimitFilter filter = new RateLimitFilter(rateLimiter(1, Duration.ofSeconds(1), now),
+                new ObjectMapper(), "/api/v1");
+
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/users/login");
+            request.setServletPath("/api/v1/users/login");
+            MockFilterChain chain = new MockFilterChain();
+            filter.doFilter(request, new MockHttpServletResponse(), chain);
+            assertNotNull(chain.getRequest());
+        }
+    }
+
+    private static Exchange login(RateLimitFilter filter) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/users/login");
+        request.setServletPath("/api/v1/users/login");
+        request.setRemoteAddr("203.0.113.7");
+        Exchange exchange = new Exchange(new MockHttpServletResponse(), new MockFilterChain());
+        filter.doFilter(request, exchange.response, exchange.chain);
+        return exchange;
+    }
+
+    private static AuthRateLimiter.Limit limit(int capacity, Duration refill) {
+        return new AuthRateLimiter.Limit("test", capacity, refill, 1000, Duration.ofMinutes(10), new SimpleMeterRegistry());
+    }
+
+    // Cùng capacity/refill cho cả bucket client và username
+    private static AuthRateLimiter rateLimiter(int capacity, Duration refill, AtomicLong now) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new AuthRateLimiter(true, 1000, Duration.ofMinutes(10), capacity, refill, capacity, refill,
+                new LatencyMetrics(meterRegistry, new double[]{0.5}), meterRegistry, now::get);
+    }
+
+    private record Exchange(MockHttpServletResponse response, MockFilterChain chain) {
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.DemoUser.componnents;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchLoaderTests {
+    // Cửa sổ dài hơn nhiều so với timeout của test: batch chỉ xong sớm nếu được gửi khi đầy
+    private static final Duration NEVER = Duration.ofHours(1);
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Set<Long>> batches = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void loneCallerDispatchesItsBatchWhenTheWindowExpires() {
+        BatchLoader<Long, String> loader = loader(Duration.ofMillis(100), 10);
+
+        long startedAt = System.nanoTime();
+        assertEquals("user-1", loader.load(1L));
+        assertTrue(System.nanoTime() - startedAt >= TimeUnit.MILLISECONDS.toNanos(100));
+        // Key không có trong kết quả trả về null
+        assertNull(loader.load(404L));
+
+        assertEquals(List.of(Set.of(1L), Set.of(404L)), batches);
+        assertEquals(2, meterRegistry.get("batch.loader.size").tag("name", "test").summary().count());
+    }
+
+    @Test
+    void fullBatchIsDispatchedWithoutWaitingForTheWindow() {
+        BatchLoader<Long, String> loader = loader(NEVER, 2);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> loader.load(1L), callers);
+            CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> loader.load(2L), callers);
+
+            assertEquals("user-1", first.join());
+            assertEquals("user-2", second.join());
+        });
+        assertEquals(List.of(Set.of(1L, 2L)), batches);
+    }
+
+    @Test
+    void loadFailureIsRethrownToEveryCallerOfTheBatch() {
+        IllegalStateException failure = new IllegalStateException("db down");
+        BatchLoader<Long, String> loader = new BatchLoader<>("test", ids -> {
+            batches.add(Set.copyOf(ids));
+            throw failure;
+        }, NEVER, 2, meterRegistry);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> loader.load(1L), callers);
+            CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> loader.load(2L), callers);
+
+            assertSame(failure, assertThrows(CompletionException.class, first::join).getCause());
+            assertSame(failure, assertThrows(CompletionException.class, second::join).getCause());
+        });
+        assertEquals(1, batches.size());
+
+    }
+
+    @Test
+    void loadFailureReachesTheCallerUnwrapped() {
+        IllegalStateException failure = new IllegalStateException("db down");
+        BatchLoader<Long, String> loader = new BatchLoader<>("test", ids -> {
+            throw failure;
+        }, Duration.ZERO, 10, meterRegistry);
+
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> loader.load(1L)));
+    }
+
+    private BatchLoader<Long, String> loader(Duration window, int maxBatchSize) {
+        return new BatchLoader<>("test", ids -> {
+            batches.add(Set.copyOf(ids));
+            Map<Long, String> users = new HashMap<>();
+            for (Long id : ids) {
+                if (id != 404L) {
+                    users.put(id, "user-" + id);
+                }
+            }
+            return users;
+        }, window, maxBatchSize, meterRegistry);
+    }
+}
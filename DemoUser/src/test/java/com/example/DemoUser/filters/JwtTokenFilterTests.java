@@ -0,0 +1,133 @@
+package com.example.DemoUser.filters;
+
+import com.example.DemoUser.componnents.JwtClaimsCache;
+import com.example.DemoUser.componnents.JwtTokenUtils;
+import com.example.DemoUser.componnents.LatencyMetrics;
+import com.example.DemoUser.componnents.TokenRevocationList;
+import com.example.DemoUser.models.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JwtTokenFilterTests {
+    private static final String API_PREFIX = "/api/v1";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JwtTokenUtils jwtTokenUtils = jwtTokenUtils();
+    private final TokenRevocationList revocationList =
+            new TokenRevocationList(null, true, 2592000, Duration.ofMinutes(1), null);
+    private final User user = User.builder().id(7L).username("alice").role("user").active(true).build();
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void validStatelessTokenIsAuthenticated() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = details(filter(true, username -> user), jwtTokenUtils.generateToken(user), chain);
+
+        assertNotNull(chain.getRequest());
+        assertEquals("alice", SecurityContextHolder.getContext().getAuthentication().getName());
+        assertEquals(1, timerCount("authenticate"));
+        assertEquals(0, timerCount("rejected"));
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    void revokedStatelessTokenIsRejectedWith401() throws Exception {
+        String token = jwtTokenUtils.generateToken(user);
+        // Token mang token_version 0; user bị khóa/đổi mật khẩu thì version tăng lên 1
+        revocationList.record(User.builder().id(user.getId()).tokenVersion(1).build());
+
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = details(filter(true, username -> user), token, chain);
+
+        assertRejected(chain, response);
+    }
+
+    @Test
+    void unknownUserIsRejectedWith401() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = details(filter(false, username -> {
+            throw new UsernameNotFoundException(username);
+        }), jwtTokenUtils.generateToken(user), chain);
+
+        assertRejected(chain, response);
+    }
+
+    @Test
+    void tokenForAnotherUsernameIsRejectedWith401() throws Exception {
+        User renamed = User.builder().id(user.getId()).username("alice2").role("user").active(true).build();
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = details(filter(false, username -> renamed), jwtTokenUtils.generateToken(user), chain);
+
+        assertRejected(chain, response);
+    }
+
+    @Test
+    void missingTokenIsRejectedWith401() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = details(filter(false, username -> user), null, chain);
+
+        assertRejected(chain, response);
+    }
+
+    private void assertRejected(MockFilterChain chain, MockHttpServletResponse response) {
+        assertNull(chain.getRequest());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertEquals(401, response.getStatus());
+        assertEquals("Bearer", response.getHeader("WWW-Authenticate"));
+        assertEquals(0, timerCount("authenticate"));
+        assertEquals(1, timerCount("rejected"));
+    }
+
+    private long timerCount(String operation) {
+        var timer = meterRegistry.find("jwt.filter").tag("operation", operation).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private static MockHttpServletResponse details(JwtTokenFilter filter, String token, MockFilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", API_PREFIX + "/users/details");
+        request.setServletPath(API_PREFIX + "/users/details");
+        if (token != null) {
+            request.addHeader("Authorization", "Bearer " + token);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private JwtTokenFilter filter(boolean stateless, UserDetailsService userDetailsService) {
+        JwtTokenFilter filter = new JwtTokenFilter(userDetailsService, jwtTokenUtils, revocationList,
+                new LatencyMetrics(meterRegistry, new double[]{0.5}), new PublicRoutes(API_PREFIX), new ObjectMapper());
+        ReflectionTestUtils.setField(filter, "statelessAuthentication", stateless);
+        return filter;
+    }
+
+    private static JwtTokenUtils jwtTokenUtils() {
+        JwtTokenUtils jwtTokenUtils = new JwtTokenUtils(new JwtClaimsCache(false, 10, 60, new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(jwtTokenUtils, "expiration", 3600);
+        ReflectionTestUtils.setField(jwtTokenUtils, "secretKey", "TaqlmGv1iEDMRiFp/pHuID1+T84IABfuA0xXh4GhiUI=");
+        ReflectionTestUtils.setField(jwtTokenUtils, "keys", "");
+        ReflectionTestUtils.setField(jwtTokenUtils, "activeKeyId", "");
+        ReflectionTestUtils.setField(jwtTokenUtils, "keysFile", "");
+        ReflectionTestUtils.invokeMethod(jwtTokenUtils, "init");
+        return jwtTokenUtils;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.DemoUser.filters;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteTableTests {
+
+    @Test
+    void singleWildcardMatchesExactlyOneSegment() {
+        RouteTable table = RouteTable.builder()
+                .route("GET", "/api/v1/users/avatars/*")
+                .build();
+
+        assertTrue(table.matches("GET", "/api/v1/users/avatars/a.png"));
+        assertFalse(table.matches("GET", "/api/v1/users/avatars"));
+        assertFalse(table.matches("GET", "/api/v1/users/avatars/"));
+        assertFalse(table.matches("GET", "/api/v1/users/avatars/a/b.png"));
+    }
+
+    @Test
+    void trailingDoubleWildcardMatchesZeroOrMoreSegments() {
+        RouteTable table = RouteTable.builder()
+                .route("GET", "/static/**")
+                .build();
+
+        assertTrue(table.matches("GET", "/static"));
+        assertTrue(table.matches("GET", "/static/"));
+        assertTrue(table.matches("GET", "/static/css"));
+        assertTrue(table.matches("GET", "/static/css/site.css"));
+        assertFalse(table.matches("GET", "/staticx"));
+        assertFalse(table.matches("GET", "/"));
+        assertFalse(table.matches("POST", "/static/css"));
+    }
+
+    @Test
+    void getRouteAlsoMatchesHeadButNotOtherMethods() {
+        RouteTable table = RouteTable.builder()
+                .route("GET", "/api/v1/users")
+                .route("POST", "/api/v1/users/login")
+                .build();
+
+        assertTrue(table.matches("GET", "/api/v1/users"));
+        assertTrue(table.matches("HEAD", "/api/v1/users"));
+        assertFalse(table.matches("POST", "/api/v1/users"));
+        assertTrue(table.matches("POST", "/api/v1/users/login"));
+        assertFalse(table.matches("HEAD", "/api/v1/users/login"));
+        assertFalse(table.matches("GET", "/api/v1/users/login"));
+        assertFalse(table.matches("BREW", "/api/v1/users"));
+    }
+
+    @Test
+    void repeatedAndTrailingSlashesAreIgnored() {
+        RouteTable table = RouteTable.builder()
+                .route("GET", "/api/v1/users")
+                .build();
+
+        assertTrue(table.matches("GET", "//api///v1/users"));
+        assertTrue(table.matches("GET", "/api/v1/users/"));
+        assertTrue(table.matches("GET", "api/v1/users"));
+        assertFalse(table.matches("GET", "/api/v1/user"));
+        assertFalse(table.matches("GET", "/api/v1/users/1"));
+        assertFalse(table.matches("GET", null));
+    }
+
+    @Test
+    void backtracksFromLiteralToWildcardSibling() {
+        RouteTable table = RouteTable.builder()
+                .route("GET", "/users/stream/export")
+                .route("GET", "/users/*/avatar")
+                .build();
+
+        // "stream" khớp nhánh literal nhưng nhánh đó không có "avatar", phải quay lại thử "*"
+        assertTrue(table.matches("GET", "/users/stream/avatar"));
+        assertTrue(table.matches("GET", "/users/stream/export"));
+        assertTrue(table.matches("GET", "/users/42/avatar"));
+        assertFalse(table.matches("GET", "/users/42/export"));
+        assertFalse(table.matches("GET", "/users/stream"));
+    }
+
+    @Test
+    void methodsOfLiteralAndWildcardRoutesStaySeparate() {
+        RouteTable table = RouteTable.builder()
+                .route("POST", "/users/login")
+                .route("GET", "/users/*")
+                .build();
+
+        assertTrue(table.matches("POST", "/users/login"));
+        assertTrue(table.matches("GET", "/users/login"));
+        assertFalse(table.matches("POST", "/users/42"));
+    }
+
+    @Test
+    void builderRejectsUnsupportedPatterns() {
+        assertThrows(IllegalArgumentException.class, () -> RouteTable.builder().route("BREW", "/coffee"));
+        assertThrows(IllegalArgumentException.class, () -> RouteTable.builder().route("GET", "/static/**/x"));
+    }
+
+    @Test
+    void routesAreListedInDeclarationOrder() {
+        RouteTable table = RouteTable.builder()
+                .route("POST", "/users/login")
+                .route("GET", "/static/**")
+                .build();
+
+        assertEquals(List.of("POST /users/login", "GET /static/**"), table.routes());
+    }
+}
@@ -0,0 +1,463 @@
+package com.example.DemoUser.loadtest;
+
+import com.example.DemoUser.DemoUserApplication;
+import com.example.DemoUser.componnents.PasswordHasher;
+import com.example.DemoUser.repositories.UserRepository;
+import com.example.DemoUser.responses.UserResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.HdrHistogram.Histogram;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.util.FileSystemUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * End-to-end load test against the real application on an embedded H2 database.
+ * <p>
+ * Boots {@link DemoUserApplication} with the {@code loadtest} profile on a random port,
+ * lets {@link LoadTestSeeder} fill the database, logs in a pool of users for tokens and
+ * then runs each phase in {@code loadtest.phases} for {@code loadtest.phase-duration}
+ * with {@code loadtest.concurrency} closed-loop clients over HTTP:
+ * <ul>
+ *     <li>{@code login} - POST /users/login storm (BCrypt bound)</li>
+ *     <li>{@code read} - authenticated GET /users/{id}</li>
+ *     <li>{@code details} - POST /users/details</li>
+ *     <li>{@code register} - multipart register burst with a PNG avatar</li>
+ *     <li>{@code update} - PATCH /users/{id} of the caller's own email</li>
+ *     <li>{@code mixed} - all of the above, weighted 10/40/25/5/20</li>
+ *     <li>{@code export} - not a closed-loop phase: {@code loadtest.export-runs} sequential
+ *     GET /users/stream downloads (as an admin) against the same number of in-process
+ *     {@code findAll()} + Jackson serializations of the whole table, reporting time to
+ *     first byte, total time and peak heap of each</li>
+ *     <li>{@code import} - not a closed-loop phase: one POST /users/import of
+ *     {@code loadtest.import-rows} new CSV rows as an admin, reporting rows/s. Passwords
+ *     are sent pre-hashed unless {@code loadtest.import-raw-passwords} is set, in which
+ *     case the import is BCrypt bound</li>
+ * </ul>
+ * Run with {@code mvn -Ploadtest verify [-Dloadtest.args="-Dloadtest.users=50000 -Dloadtest.concurrency=32"]}.
+ */
+public final class LoadTestHarness {
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final String baseUrl;
+    private final int users;
+    private final int concurrency;
+    private final Duration phaseDuration;
+    private final Duration warmup;
+    private final List<String> phases;
+    private final Path resultFile;
+    private final Statistics statistics;
+    private final byte[] avatar;
+    private final int exportRuns;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    private final int importRows;
+    private final boolean importRawPasswords;
+    private final PasswordHasher passwordHasher;
+    private final AtomicLong registered = new AtomicLong();
+    private final AtomicLong updates = new AtomicLong();
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+    private List<String> tokens = List.of();
+
+    private LoadTestHarness(ConfigurableApplicationContext context) throws IOException {
+        Environment environment = context.getEnvironment();
+        this.baseUrl = "http://localhost:" + environment.getRequiredProperty("local.server.port")
+                + environment.getRequiredProperty("api.prefix") + "/users";
+        this.users = environment.getProperty("loadtest.users", Integer.class, 10_000);
+        this.concurrency = environment.getProperty("loadtest.concurrency", Integer.class, 16);
+        this.phaseDuration = environment.getProperty("loadtest.phase-duration", Duration.class, Duration.ofSeconds(20));
+        this.warmup = environment.getProperty("loadtest.warmup", Duration.class, Duration.ofSeconds(5));
+        this.phases = List.of(environment.getProperty("loadtest.phases", String[].class,
+                new String[]{"login", "read", "details", "register", "update", "mixed", "export", "import"}));
+        this.resultFile = Path.of(environment.getProperty("loadtest.result", "target/loadtest-result.json"));
+        this.statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        this.avatar = png();
+        this.exportRuns = environment.getProperty("loadtest.export-runs", Integer.class, 3);
+        this.userRepository = context.getBean(UserRepository.class);
+        this.objectMapper = context.getBean(ObjectMapper.class);
+        this.importRows = environment.getProperty("loadtest.import-rows", Integer.class, 20_000);
+        this.importRawPasswords = environment.getProperty("loadtest.import-raw-passwords", Boolean.class, false);
+        this.passwordHasher = context.getBean(PasswordHasher.class);
+    }
+
+    public static void main(String[] args) throws Exception {
+        FileSystemUtils.deleteRecursively(Path.of("target/loadtest-uploads"));
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoUserApplication.class)
+                .profiles("loadtest")
+                .run(args);
+        try {
+            new LoadTestHarness(context).run(context.getEnvironment().getProperty("loadtest.token-pool", Integer.class, 100));
+        } finally {
+            context.close();
+        }
+    }
+
+    private void run(int tokenPool) throws Exception {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("users", users);
+        settings.put("concurrency", concurrency);
+        settings.put("phaseSeconds", phaseDuration.toMillis() / 1000.0);
+        settings.put("tokenPool", tokenPool);
+        settings.put("processors", Runtime.getRuntime().availableProcessors());
+        LoadTestReport report = new LoadTestReport(settings);
+
+        tokens = loginPool(Math.min(tokenPool, users));
+        if (!warmup.isZero()) {
+            runPhase("warmup", warmup);
+        }
+        System.out.println(LoadTestReport.PhaseResult.HEADER);
+        for (String phase : phases) {
+            if ("export".equals(phase)) {
+                runExports(report);
+            } else if ("import".equals(phase)) {
+                report.addImport(runImport());
+            } else {
+                report.add(runPhase(phase, phaseDuration));
+            }
+        }
+        report.write(resultFile);
+    }
+
+    private List<String> loginPool(int size) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<String>> futures = new ArrayList<>(size);
+            for (int i = 1; i <= size; i++) {
+                int userIndex = i;
+                futures.add(executor.submit(() -> {
+                    HttpResponse<String> response = send(login(userIndex));
+                    Matcher matcher = TOKEN.matcher(response.body());
+                    if (!matcher.find()) {
+                        throw new IllegalStateException("Login failed for user " + userIndex + ": " + response.body());
+                    }
+                    return matcher.group(1);
+                }));
+            }
+            List<String> pool = new ArrayList<>(size);
+            for (Future<String> future : futures) {
+                pool.add(future.get());
+            }
+            return pool;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private LoadTestReport.PhaseResult runPhase(String phase, Duration duration) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        long queriesBefore = statistics.getPrepareStatementCount();
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + duration.toNanos();
+        try {
+            List<Future<Worker>> futures = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                Worker worker = new Worker(i);
+                futures.add(executor.submit(() -> worker.runUntil(phase, deadline)));
+            }
+            Histogram latency = new Histogram(Duration.ofMinutes(1).toNanos() / 1000, 3);
+            Map<Integer, Long> statuses = new HashMap<>();
+            long requests = 0;
+            long errors = 0;
+            for (Future<Worker> future : futures) {
+                Worker worker = future.get();
+                latency.add(worker.latency);
+                worker.statuses.forEach((status, count) -> statuses.merge(status, count, Long::sum));
+                requests += worker.requests;
+                errors += worker.errors;
+            }
+            double seconds = (System.nanoTime() - startedAt) / 1e9;
+            return new LoadTestReport.PhaseResult(phase, seconds, requests, errors, statuses, latency,
+                    statistics.getPrepareStatementCount() - queriesBefore);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Chạy tuần tự để peak heap của mỗi lần đo chỉ gồm một export
+    private void runExports(LoadTestReport report) throws Exception {
+        List<LoadTestReport.ExportRun> stream = new ArrayList<>(exportRuns);
+        List<LoadTestReport.ExportRun> findAll = new ArrayList<>(exportRuns);
+        String token = adminToken("export");
+        for (int i = 0; i < exportRuns; i++) {
+            stream.add(measureExport(startedAt -> streamExport(token, startedAt)));
+            findAll.add(measureExport(this::findAllExport));
+        }
+        System.out.println(LoadTestReport.ExportResult.HEADER);
+        report.addExport(new LoadTestReport.ExportResult("stream", stream));
+        report.addExport(new LoadTestReport.ExportResult("findAll", findAll));
+    }
+
+    private LoadTestReport.ExportRun measureExport(Export export) throws Exception {
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        System.gc();
+        long baseline = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            pool.resetPeakUsage();
+            baseline += pool.getUsage().getUsed();
+        }
+        long startedAt = System.nanoTime();
+        long[] firstByteAndBytes = export.run(startedAt);
+        long totalNanos = System.nanoTime() - startedAt;
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        return new LoadTestReport.ExportRun(firstByteAndBytes[0], totalNanos, firstByteAndBytes[1], Math.max(0, peak - baseline));
+    }
+
+    // Client đọc body theo từng khối nhỏ nên heap tăng thêm chủ yếu là phía server
+    private long[] streamExport(String token, long startedAt) throws IOException, InterruptedException {
+        HttpRequest request = authorized(token, "/stream").GET().build();
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("GET /users/stream returned " + response.statusCode());
+            }
+            byte[] buffer = new byte[8192];
+            long firstByte = -1;
+            long bytes = 0;
+            for (int read; (read = body.read(buffer)) != -1; ) {
+                if (firstByte < 0) {
+                    firstByte = System.nanoTime() - startedAt;
+                }
+                bytes += read;
+            }
+            return new long[]{firstByte, bytes};
+        }
+    }
+
+    // Như một endpoint trả cả danh sách: byte đầu tiên chỉ có sau khi đã nạp và serialize toàn bộ bảng
+    private long[] findAllExport(long startedAt) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(userRepository.findAll().stream().map(UserResponse::from).toList());
+        return new long[]{System.nanoTime() - startedAt, json.length};
+    }
+
+    @FunctionalInterface
+    private interface Export {
+        long[] run(long startedAt) throws Exception;
+    }
+
+    // User thứ 100 của seeder là admin
+    private String adminToken(String phase) throws IOException, InterruptedException {
+        HttpResponse<String> login = send(login(100));
+        Matcher matcher = TOKEN.matcher(login.body());
+        if (!matcher.find()) {
+            throw new IllegalStateException("Admin login failed, the " + phase + " phase needs loadtest.users >= 100: " + login.body());
+        }
+        return matcher.group(1);
+    }
+
+    private LoadTestReport.ImportResult runImport() throws Exception {
+        String token = adminToken("import");
+        String password = importRawPasswords ? LoadTestSeeder.PASSWORD : passwordHasher.encode(LoadTestSeeder.PASSWORD);
+        StringBuilder csv = new StringBuilder("username,password,email,phone,date_of_birth,role,is_active\n");
+        for (int n = 1; n <= importRows; n++) {
+            csv.append("import ").append(runId).append('-').append(n).append(',')
+                    .append(password).append(',')
+                    .append("import").append(runId).append('-').append(n).append("@loadtest.local,")
+                    .append(String.format("07%08d", n)).append(',')
+                    .append("1990-01-").append(String.format("%02d", 1 + n % 28)).append(",user,true\n");
+        }
+        HttpRequest request = authorized(token, "/import")
+                .header("Content-Type", "text/csv")
+                .timeout(Duration.ofMinutes(30))
+                .POST(HttpRequest.BodyPublishers.ofString(csv.toString()))
+                .build();
+        long startedAt = System.nanoTime();
+        HttpResponse<String> response = send(request);
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("POST /users/import returned " + response.statusCode() + ": " + response.body());
+        }
+        JsonNode data = objectMapper.readTree(response.body()).path("data");
+        return new LoadTestReport.ImportResult(importRawPasswords ? "raw" : "hashed", importRows,
+                data.path("inserted").asLong(), data.path("failed").asLong(), seconds, data.path("rowsPerSecond").asDouble());
+    }
+
+    private final class Worker {
+        private final int index;
+        private final Histogram latency = new Histogram(Duration.ofMinutes(1).toNanos() / 1000, 3);
+        private final Map<Integer, Long> statuses = new HashMap<>();
+        private long requests;
+        private long errors;
+
+        Worker(int index) {
+            this.index = index;
+        }
+
+        Worker runUntil(String phase, long deadline) {
+            while (System.nanoTime() < deadline) {
+                HttpRequest request = request(phase);
+                long startedAt = System.nanoTime();
+                int status;
+                try {
+                    status = send(request).statusCode();
+                } catch (IOException e) {
+                    status = 0; // lỗi kết nối
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                latency.recordValue(Math.min((System.nanoTime() - startedAt) / 1000, latency.getHighestTrackableValue()));
+                statuses.merge(status, 1L, Long::sum);
+                requests++;
+                if (status < 200 || status >= 300) {
+                    errors++;
+                }
+            }
+            return this;
+        }
+
+        private HttpRequest request(String phase) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            String kind = phase;
+            if ("mixed".equals(phase) || "warmup".equals(phase)) {
+                int roll = random.nextInt(100);
+                kind = roll < 10 ? "login" : roll < 50 ? "read" : roll < 75 ? "details" : roll < 80 ? "register" : "update";
+            }
+            return switch (kind) {
+                case "login" -> login(1 + random.nextInt(users));
+                case "read" -> authorized(randomToken(), "/" + (1 + random.nextInt(users))).GET().build();
+                case "details" -> authorized(randomToken(), "/details").POST(HttpRequest.BodyPublishers.noBody()).build();
+                case "register" -> register();
+                case "update" -> update();
+                default -> throw new IllegalArgumentException("Unknown load test phase: " + phase);
+            };
+        }
+
+        // Mỗi worker chỉ sửa các user trong phần token của mình để hai request không sửa cùng một dòng
+        private HttpRequest update() {
+            int slots = Math.max(1, (tokens.size() - index + concurrency - 1) / concurrency);
+            int tokenIndex = Math.min(tokens.size() - 1, index + concurrency * ThreadLocalRandom.current().nextInt(slots));
+            long userId = tokenIndex + 1;
+            String body = "{\"email\":\"user" + userId + "-" + updates.incrementAndGet() + "@loadtest.local\"}";
+            return authorized(tokens.get(tokenIndex), "/" + userId)
+                    .header("Content-Type", "application/json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+    }
+
+    private HttpRequest login(int userIndex) {
+        String body = "{\"userName\":\"" + LoadTestSeeder.username(userIndex) + "\",\"password\":\""
+                + LoadTestSeeder.PASSWORD + "\",\"role\":\"" + (userIndex % 100 == 0 ? "admin" : "user") + "\"}";
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest register() {
+        long n = registered.incrementAndGet();
+        String boundary = "----loadtest" + runId + n;
+        MultipartBody body = new MultipartBody(boundary)
+                .field("username", "burst " + runId + "-" + n)
+                .field("password", LoadTestSeeder.PASSWORD)
+                .field("email", "burst" + runId + "-" + n + "@loadtest.local")
+                .field("phone", String.format("08%08d", n))
+                .field("role", "user")
+                .field("active", "true")
+                .file("avatar", "avatar.png", "image/png", avatar);
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/register"))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(body.publisher())
+                .build();
+    }
+
+    private HttpRequest.Builder authorized(String token, String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).header("Authorization", "Bearer " + token);
+    }
+
+    private String randomToken() {
+        return tokens.get(ThreadLocalRandom.current().nextInt(tokens.size()));
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static byte[] png() throws IOException {
+        BufferedImage image = new BufferedImage(512, 512, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(0x2E86C1));
+        graphics.fillRect(0, 0, 512, 512);
+        graphics.setColor(Color.WHITE);
+        graphics.fillOval(128, 96, 256, 256);
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static final class MultipartBody {
+        private final String boundary;
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        MultipartBody(String boundary) {
+            this.boundary = boundary;
+        }
+
+        MultipartBody field(String name, String value) {
+            write("--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + name + "\"\r\n\r\n" + value + "\r\n");
+            return this;
+        }
+
+        MultipartBody file(String name, String fileName, String contentType, byte[] content) {
+            write("--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + name + "\"; filename=\"" + fileName
+                    + "\"\r\nContent-Type: " + contentType + "\r\n\r\n");
+            out.writeBytes(content);
+            write("\r\n");
+            return this;
+        }
+
+        HttpRequest.BodyPublisher publisher() {
+            write("--" + boundary + "--\r\n");
+            return HttpRequest.BodyPublishers.ofByteArray(out.toByteArray());
+        }
+
+        private void write(String text) {
+            out.writeBytes(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.DemoUser.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Results of a load-test run: one entry per phase, printed as a table row when the phase
+ * ends and written as JSON so runs from different commits can be diffed.
+ */
+final class LoadTestReport {
+    private final Map<String, Object> settings;
+    private final List<PhaseResult> phases = new ArrayList<>();
+    private final List<ExportResult> exports = new ArrayList<>();
+    private final List<ImportResult> imports = new ArrayList<>();
+
+    LoadTestReport(Map<String, Object> settings) {
+        this.settings = settings;
+    }
+
+    void add(PhaseResult phase) {
+        phases.add(phase);
+        System.out.println(phase.line());
+    }
+
+    void addExport(ExportResult export) {
+        exports.add(export);
+        System.out.println(export.line());
+    }
+
+    void addImport(ImportResult result) {
+        imports.add(result);
+        System.out.println(ImportResult.HEADER);
+        System.out.println(result.line());
+    }
+
+    void write(Path file) throws IOException {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("settings", settings);
+        json.put("phases", phases.stream().map(PhaseResult::toJson).toList());
+        if (!exports.isEmpty()) {
+            json.put("exports", exports.stream().map(ExportResult::toJson).toList());
+        }
+        if (!imports.isEmpty()) {
+            json.put("imports", imports.stream().map(ImportResult::toJson).toList());
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), json);
+        System.out.println("Load test result is saved to " + file.toAbsolutePath());
+    }
+
+    /**
+     * Totals for one phase. Latencies are in microseconds in the histogram and reported in
+     * milliseconds; queries are JDBC statements Hibernate prepared during the phase.
+     */
+    record PhaseResult(String name,
+                       double seconds,
+                       long requests,
+                       long errors,
+                       Map<Integer, Long> statuses,
+                       Histogram latencyMicros,
+                       long queries) {
+        static final String HEADER = String.format("%-10s %9s %9s %8s %9s %9s %9s %9s %9s %11s",
+                "phase", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "queries/req");
+
+        double throughput() {
+            return requests / seconds;
+        }
+
+        double errorRate() {
+            return requests == 0 ? 0 : (double) errors / requests;
+        }
+
+        double queriesPerRequest() {
+            return requests == 0 ? 0 : (double) queries / requests;
+        }
+
+        double percentileMillis(double percentile) {
+            return latencyMicros.getValueAtPercentile(percentile) / 1000.0;
+        }
+
+        String line() {
+            return String.format("%-10s %9d %9.1f %7.2f%% %9.2f %9.2f %9.2f %9.2f %9.2f %11.2f",
+                    name, requests, throughput(), errorRate() * 100,
+                    percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(99.9),
+                    latencyMicros.getMaxValue() / 1000.0, queriesPerRequest());
+        }
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("phase", name);
+            json.put("seconds", seconds);
+            json.put("requests", requests);
+            json.put("throughput", throughput());
+            json.put("errors", errors);
+            json.put("errorRate", errorRate());
+            json.put("statuses", new TreeMap<>(statuses));
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("p50", percentileMillis(50));
+            latency.put("p90", percentileMillis(90));
+            latency.put("p99", percentileMillis(99));
+            latency.put("p999", percentileMillis(99.9));
+            latency.put("max", latencyMicros.getMaxValue() / 1000.0);
+            json.put("latencyMillis", latency);
+            json.put("queriesPerRequest", queriesPerRequest());
+            return json;
+        }
+    }
+
+    /**
+     * One full-table export: time to first byte and total time in nanoseconds, bytes of
+     * JSON produced and heap used above the post-GC baseline at its peak.
+     */
+    record ExportRun(long firstByteNanos, long totalNanos, long bytes, long peakHeapBytes) {
+    }
+
+    /**
+     * Sequential runs of one export mode; times are averaged, peak heap is the worst run.
+     */
+    record ExportResult(String name, List<ExportRun> runs) {
+        static final String HEADER = String.format("%-10s %9s %9s %9s %11s %14s",
+                "export", "runs", "JSON MB", "TTFB ms", "total ms", "peak heap MB");
+
+        double firstByteMillis() {
+            return runs.stream().mapToLong(ExportRun::firstByteNanos).average().orElse(0) / 1e6;
+        }
+
+        double totalMillis() {
+            return runs.stream().mapToLong(ExportRun::totalNanos).average().orElse(0) / 1e6;
+        }
+
+        double megabytes() {
+            return runs.stream().mapToLong(ExportRun::bytes).max().orElse(0) / 1048576.0;
+        }
+
+        double peakHeapMegabytes() {
+            return runs.stream().mapToLong(ExportRun::peakHeapBytes).max().orElse(0) / 1048576.0;
+        }
+
+        String line() {
+            return String.format("%-10s %9d %9.1f %9.2f %11.2f %14.1f",
+                    name, runs.size(), megabytes(), firstByteMillis(), totalMillis(), peakHeapMegabytes());
+        }
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("export", name);
+            json.put("runs", runs.size());
+            json.put("megabytes", megabytes());
+            json.put("firstByteMillis", firstByteMillis());
+            json.put("totalMillis", totalMillis());
+            json.put("peakHeapMegabytes", peakHeapMegabytes());
+            return json;
+        }
+    }
+
+    /**
+     * One POST /users/import. Rows/s is measured by the client over the whole request;
+     * the server's own figure (parse to last commit) is reported next to it.
+     */
+    record ImportResult(String passwords, long rows, long inserted, long failed, double seconds, double serverRowsPerSecond) {
+        static final String HEADER = String.format("%-10s %9s %9s %8s %9s %9s %12s",
+                "import", "rows", "inserted", "failed", "seconds", "rows/s", "server rows/s");
+
+        double rowsPerSecond() {
+            return rows / seconds;
+        }
+
+        String line() {
+            return String.format("%-10s %9d %9d %8d %9.2f %9.1f %12.1f",
+                    passwords, rows, inserted, failed, seconds, rowsPerSecond(), serverRowsPerSecond);
+        }
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("passwords", passwords);
+            json.put("rows", rows);
+            json.put("inserted", inserted);
+            json.put("failed", failed);
+            json.put("seconds", seconds);
+            json.put("rowsPerSecond", rowsPerSecond());
+            json.put("serverRowsPerSecond", serverRowsPerSecond);
+            return json;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.DemoUser.loadtest;
+
+import com.example.DemoUser.componnents.PasswordHasher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fills the embedded database with {@code loadtest.users} rows shaped like the
+ * production {@code users} table before the application reports ready, so the search
+ * index and caches start from the seeded data. Every seeded user shares
+ * {@link #PASSWORD}; it is hashed once with the configured encoder.
+ */
+@Slf4j
+@Component
+@Profile("loadtest")
+@RequiredArgsConstructor
+public class LoadTestSeeder implements ApplicationRunner {
+    public static final String PASSWORD = "loadtest-123";
+
+    private static final String[] FAMILY_NAMES = {"nguyen", "tran", "le", "pham", "hoang", "huynh", "phan", "vu", "vo", "dang"};
+    private static final String[] GIVEN_NAMES = {"tien", "an", "binh", "chi", "dung", "giang", "hoa", "khanh", "linh", "minh",
+            "nam", "phuong", "quang", "son", "thao", "trang", "tuan", "vy"};
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordHasher passwordHasher;
+
+    @Value("${loadtest.users:10000}")
+    private int users;
+
+    // Cùng công thức với dữ liệu thật: "<tên> <họ><số>", ví dụ "tien le1"
+    public static String username(int index) {
+        return GIVEN_NAMES[index % GIVEN_NAMES.length] + " " + FAMILY_NAMES[(index / GIVEN_NAMES.length) % FAMILY_NAMES.length] + index;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long startedAt = System.nanoTime();
+        String passwordHash = passwordHasher.encode(PASSWORD);
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= users; i++) {
+            Timestamp createdAt = Timestamp.valueOf(now.minusMinutes(users - i));
+            batch.add(new Object[]{
+                    username(i),
+                    passwordHash,
+                    "user" + i + "@loadtest.local",
+                    String.format("09%08d", i),
+                    Date.valueOf(LocalDate.of(1970 + i % 36, 1 + i % 12, 1 + i % 28)),
+                    true,
+                    i % 100 == 0 ? "admin" : "user",
+                    createdAt,
+                    createdAt
+            });
+            if (batch.size() == BATCH_SIZE || i == users) {
+                jdbcTemplate.batchUpdate("INSERT INTO users (username, password, email, phone, date_of_birth, is_active, role, "
+                        + "token_version, version, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, 0, 0, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        log.info("Seeded {} users in {} ms", users, (System.nanoTime() - startedAt) / 1_000_000);
+    }
+}
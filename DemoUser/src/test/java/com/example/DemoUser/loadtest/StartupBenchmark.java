@@ -0,0 +1,260 @@
+package com.example.DemoUser.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+
+/**
+ * Startup cost of each way to ship the service: time from process start to the first
+ * successful POST /users/login, and resident memory (VmRSS) after {@code startup.idle}.
+ * <p>
+ * The packaged jar is extracted with the Boot jar tools, as in the Dockerfile, and each
+ * variant in {@code startup.variants} is started {@code startup.runs} times:
+ * <ul>
+ *     <li>{@code jvm} - plain JVM</li>
+ *     <li>{@code aot} - {@code -Dspring.aot.enabled=true}, needs a jar built with {@code -Paot}</li>
+ *     <li>{@code cds} - with a class-data sharing archive from a training run</li>
+ *     <li>{@code aot-cds} - both, what the Docker image runs</li>
+ *     <li>{@code native} - {@code startup.native} built with {@code -Pnative native:compile}</li>
+ * </ul>
+ * Each run gets a fresh embedded H2 database by default, so the login is preceded by one
+ * register; the native image has no H2 driver and needs {@code startup.app-args} pointing
+ * at MySQL. Linux only (RSS comes from /proc).
+ * Run with {@code mvn -Paot,startup verify [-Dstartup.args="-Dstartup.runs=5 -Dstartup.variants=jvm,aot-cds"]}.
+ */
+public final class StartupBenchmark {
+    private static final String MAIN_CLASS = "com.example.DemoUser.DemoUserApplication";
+    private static final String AOT_INITIALIZER = "BOOT-INF/classes/com/example/DemoUser/DemoUserApplication__ApplicationContextInitializer.class";
+    private static final String H2_ARGS = "--spring.datasource.url=jdbc:h2:mem:startup;MODE=MySQL;DB_CLOSE_DELAY=-1"
+            + " --spring.datasource.driver-class-name=org.h2.Driver --spring.datasource.username=sa --spring.datasource.password="
+            + " --spring.jpa.hibernate.ddl-auto=create --spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+            + " --spring.jpa.show-sql=false --logging.level.org.springframework.security=INFO";
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+    private final Path jar = Path.of(System.getProperty("startup.jar", "target/DemoUser-0.0.1-SNAPSHOT.jar"));
+    private final Path nativeImage = Path.of(System.getProperty("startup.native", "target/DemoUser"));
+    private final Path workDir = Path.of(System.getProperty("startup.dir", "target/startup"));
+    private final String extraClasspath = System.getProperty("startup.classpath", "");
+    private final List<String> appArgs = split(System.getProperty("startup.app-args", H2_ARGS));
+    private final List<String> variants = split(System.getProperty("startup.variants", "jvm,aot,cds,aot-cds,native").replace(',', ' '));
+    private final int runs = Integer.getInteger("startup.runs", 3);
+    private final int port = Integer.getInteger("startup.port", 18088);
+    private final Duration idle = Duration.parse("PT" + System.getProperty("startup.idle", "5s"));
+    private final Duration timeout = Duration.parse("PT" + System.getProperty("startup.timeout", "180s"));
+    private final Path resultFile = Path.of(System.getProperty("startup.result", "target/startup-result.json"));
+    private final String username = "startup-" + UUID.randomUUID().toString().substring(0, 8);
+
+    public static void main(String[] args) throws Exception {
+        new StartupBenchmark().run();
+    }
+
+    private void run() throws Exception {
+        Path application = extract();
+        boolean aotProcessed = hasAotInitializer();
+        List<Map<String, Object>> results = new ArrayList<>();
+        System.out.printf("%-8s %4s %14s %12s%n", "variant", "runs", "login ms p50", "idle RSS MB");
+        for (String variant : variants) {
+            if (variant.startsWith("aot") && !aotProcessed) {
+                System.out.printf("%-8s skipped, %s was not built with -Paot%n", variant, jar);
+                continue;
+            }
+            if (variant.equals("native") && !Files.isExecutable(nativeImage)) {
+                System.out.printf("%-8s skipped, no native image at %s%n", variant, nativeImage);
+                continue;
+            }
+            List<String> command = command(variant, application);
+            List<Long> loginMillis = new ArrayList<>();
+            List<Long> rssKilobytes = new ArrayList<>();
+            for (int run = 1; run <= runs; run++) {
+                long[] sample = measure(command, workDir.resolve(variant + "-" + run + ".log"));
+                loginMillis.add(sample[0]);
+                rssKilobytes.add(sample[1]);
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("variant", variant);
+            result.put("command", String.join(" ", command));
+            result.put("firstLoginMillis", loginMillis);
+            result.put("firstLoginMillisMedian", median(loginMillis));
+            result.put("idleRssMegabytes", rssKilobytes.stream().map(kb -> kb / 1024.0).toList());
+            result.put("idleRssMegabytesMedian", median(rssKilobytes) / 1024.0);
+            results.add(result);
+            System.out.printf("%-8s %4d %14d %12.1f%n", variant, runs, median(loginMillis), median(rssKilobytes) / 1024.0);
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("jar", jar.toString());
+        json.put("java", Runtime.version().toString());
+        json.put("idleSeconds", idle.toMillis() / 1000.0);
+        json.put("processors", Runtime.getRuntime().availableProcessors());
+        json.put("variants", results);
+        Files.createDirectories(resultFile.toAbsolutePath().getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(resultFile.toFile(), json);
+        System.out.println("Startup result is saved to " + resultFile.toAbsolutePath());
+    }
+
+    private Path extract() throws IOException, InterruptedException {
+        Path destination = workDir.resolve("application");
+        exec(List.of(java(), "-Djarmode=tools", "-jar", jar.toString(), "extract", "--force", "--destination", destination.toString()),
+                workDir.resolve("extract.log"));
+        return destination.resolve(jar.getFileName());
+    }
+
+    private List<String> command(String variant, Path application) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        if (variant.equals("native")) {
+            command.add(nativeImage.toString());
+        } else {
+            command.add(java());
+            if (variant.startsWith("aot")) {
+                command.add("-Dspring.aot.enabled=true");
+            }
+            if (variant.endsWith("cds")) {
+                command.add("-XX:SharedArchiveFile=" + train(variant, application));
+            }
+            command.add("-cp");
+            command.add(extraClasspath.isEmpty() ? application.toString() : application + File.pathSeparator + extraClasspath);
+            command.add(MAIN_CLASS);
+        }
+        command.addAll(appArgs);
+        command.add("--server.port=" + port);
+        command.add("--management.server.port=0");
+        return command;
+    }
+
+    // Chạy tới khi context refresh xong rồi thoát, JVM ghi lại các class đã nạp vào archive
+    private Path train(String variant, Path application) throws IOException, InterruptedException {
+        Path archive = workDir.resolve(variant + ".jsa").toAbsolutePath();
+        List<String> command = new ArrayList<>(List.of(java(), "-XX:ArchiveClassesAtExit=" + archive, "-Dspring.context.exit=onRefresh"));
+        if (variant.startsWith("aot")) {
+            command.add("-Dspring.aot.enabled=true");
+        }
+        command.addAll(List.of("-cp", extraClasspath.isEmpty() ? application.toString() : application + File.pathSeparator + extraClasspath, MAIN_CLASS));
+        command.addAll(appArgs);
+        command.add("--server.port=" + port);
+        command.add("--management.server.port=0");
+        exec(command, workDir.resolve(variant + "-training.log"));
+        return archive;
+    }
+
+    private long[] measure(List<String> command, Path log) throws Exception {
+        long startedAt = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        try {
+            long loginMillis = firstLogin(process, startedAt);
+            Thread.sleep(idle.toMillis());
+            return new long[]{loginMillis, rssKilobytes(process.pid())};
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private long firstLogin(Process process, long startedAt) throws Exception {
+        String baseUrl = "http://localhost:" + port + "/api/v1/users";
+        boolean registered = false;
+        long deadline = startedAt + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Process exited with " + process.exitValue() + " before the first login");
+            }
+            try {
+                int status = post(baseUrl + "/login", "application/json",
+                        "{\"userName\":\"" + username + "\",\"password\":\"startup-123\",\"role\":\"user\"}");
+                if (status == 200) {
+                    return (System.nanoTime() - startedAt) / 1_000_000;
+                }
+                if (!registered && status >= 400 && status < 500) {
+                    register(baseUrl + "/register");
+                    registered = true;
+                    continue;
+                }
+            } catch (ConnectException | HttpTimeoutException e) {
+                // Chưa lắng nghe cổng
+            }
+            Thread.sleep(20);
+        }
+        throw new IllegalStateException("No successful login within " + timeout);
+    }
+
+    private void register(String url) throws IOException, InterruptedException {
+        String boundary = "startup" + UUID.randomUUID();
+        StringBuilder body = new StringBuilder();
+        Map<String, String> fields = Map.of("username", username, "password", "startup-123", "email", username + "@example.com",
+                "phone", "0900000000", "role", "user", "active", "true");
+        fields.forEach((name, value) -> body.append("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"").append(name).append("\"\r\n\r\n")
+                .append(value).append("\r\n"));
+        body.append("--").append(boundary).append("--\r\n");
+        // Có thể đã tồn tại (DB dùng chung giữa các lần chạy), login ở vòng sau sẽ cho biết
+        post(url, "multipart/form-data; boundary=" + boundary, body.toString());
+    }
+
+    private int post(String url, String contentType, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static long rssKilobytes(long pid) throws IOException {
+        for (String line : Files.readAllLines(Path.of("/proc", String.valueOf(pid), "status"))) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        throw new IllegalStateException("No VmRSS for process " + pid);
+    }
+
+    private boolean hasAotInitializer() throws IOException {
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            return zip.getEntry(AOT_INITIALIZER) != null;
+        }
+    }
+
+    private void exec(List<String> command, Path log) throws IOException, InterruptedException {
+        Files.createDirectories(workDir);
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS) || process.exitValue() != 0) {
+            process.destroyForcibly();
+            throw new IllegalStateException(String.join(" ", command) + " failed, see " + log);
+        }
+    }
+
+    private static String java() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private static List<String> split(String value) {
+        return Arrays.stream(value.trim().split("\\s+")).filter(part -> !part.isEmpty()).toList();
+    }
+
+    private static long median(List<Long> values) {
+        return values.stream().sorted().toList().get(values.size() / 2);
+    }
+}
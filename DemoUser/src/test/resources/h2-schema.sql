@@ -0,0 +1,29 @@
+CREATE TABLE IF NOT EXISTS users (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    username VARCHAR(50) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL,
+    email VARCHAR(100) NOT NULL UNIQUE,
+    phone VARCHAR(20) NOT NULL UNIQUE,
+    avatar VARCHAR(100),
+    avatar_variants VARCHAR(500),
+    date_of_birth DATE,
+    is_active BOOLEAN,
+    role VARCHAR(10) NOT NULL,
+    token_version INT NOT NULL DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
+CREATE TABLE IF NOT EXISTS replication_heartbeat (
+    id INT PRIMARY KEY,
+    beat_millis BIGINT NOT NULL
+);
+CREATE TABLE IF NOT EXISTS user_change_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    change_type VARCHAR(20) NOT NULL,
+    user_id BIGINT NULL,
+    username VARCHAR(50) NULL,
+    previous_username VARCHAR(50) NULL,
+    origin VARCHAR(64) NOT NULL,
+    created_millis BIGINT NOT NULL
+);